@@ -0,0 +1,52 @@
+#!/bin/bash
+# Runs the k6 load test against the application twice, with platform threads and
+# with virtual threads, and prints throughput and p99 latency for each run.
+#
+# Requires: a built jar (./mvnw package), a reachable PostgreSQL configured through
+# SPRING_DATASOURCE_* variables, k6 on the PATH, and JAVA_HOME pointing at Java 21+.
+
+set -euo pipefail
+
+JAR=${JAR:-target/spring-ai-demo-0.0.1-SNAPSHOT.jar}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+BASE_URL=${BASE_URL:-http://localhost:8080}
+OUT=${OUT:-target/load-test}
+
+mkdir -p "$OUT"
+
+run_mode() {
+    local virtual=$1
+    echo "Starting application (spring.threads.virtual.enabled=$virtual)..."
+    SPRING_THREADS_VIRTUAL_ENABLED=$virtual "$JAVA" -jar "$JAR" > "$OUT/app-virtual-$virtual.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null" EXIT
+
+    until curl -sf "$BASE_URL/actuator/health" > /dev/null; do
+        kill -0 $pid 2>/dev/null || { echo "Application failed to start, see $OUT/app-virtual-$virtual.log"; exit 1; }
+        sleep 1
+    done
+
+    k6 run --quiet -e BASE_URL="$BASE_URL" \
+        --summary-export "$OUT/summary-virtual-$virtual.json" load-test/users.js
+
+    kill $pid
+    wait $pid 2>/dev/null || true
+    trap - EXIT
+}
+
+summarize() {
+    local file=$1
+    python3 - "$file" <<'PY'
+import json, sys
+m = json.load(open(sys.argv[1]))["metrics"]
+print(f"  throughput: {m['http_reqs']['rate']:.0f} req/s")
+print(f"  p99:        {m['http_req_duration']['p(99)']:.1f} ms")
+print(f"  failed:     {m['http_req_failed']['value'] * 100:.2f} %")
+PY
+}
+
+run_mode false
+run_mode true
+
+echo "Platform threads:"; summarize "$OUT/summary-virtual-false.json"
+echo "Virtual threads:";  summarize "$OUT/summary-virtual-true.json"
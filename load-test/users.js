@@ -0,0 +1,49 @@
+// k6 load test for /api/v1/users: a read-heavy mix of listings and lookups.
+//   k6 run -e BASE_URL=http://localhost:8080 load-test/users.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '200');
+const DURATION = __ENV.DURATION || '60s';
+const SEED_USERS = parseInt(__ENV.SEED_USERS || '1000');
+
+export const options = {
+  scenarios: {
+    users: {
+      executor: 'constant-vus',
+      vus: VUS,
+      duration: DURATION,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  const lines = [];
+  for (let i = 0; i < SEED_USERS; i++) {
+    lines.push(JSON.stringify({ name: `Load User ${i}`, email: `load${i}@loadtest.example` }));
+  }
+  http.post(`${BASE_URL}/api/v1/users:bulk`, lines.join('\n'), {
+    headers: { 'Content-Type': 'application/x-ndjson' },
+    timeout: '120s',
+  });
+  const first = http.get(`${BASE_URL}/api/v1/users?emailDomain=loadtest.example&size=1&sort=id`).json();
+  return { firstId: first._embedded.userDTOList[0].id };
+}
+
+export default function (data) {
+  const r = Math.random();
+  let res;
+  if (r < 0.6) {
+    res = http.get(`${BASE_URL}/api/v1/users/${data.firstId + Math.floor(Math.random() * SEED_USERS)}`,
+      { tags: { name: 'getUserById' } });
+  } else if (r < 0.8) {
+    res = http.get(`${BASE_URL}/api/v1/users?page=${Math.floor(Math.random() * 20)}&size=20`,
+      { tags: { name: 'getAllUsers' } });
+  } else {
+    res = http.get(`${BASE_URL}/api/v1/users?status=ACTIVE&name=user%20${Math.floor(Math.random() * 100)}`,
+      { tags: { name: 'searchUsers' } });
+  }
+  check(res, { 'status is 200': (r) => r.status === 200 });
+}
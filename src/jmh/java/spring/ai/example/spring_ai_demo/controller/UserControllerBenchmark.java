@@ -0,0 +1,230 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import spring.ai.example.spring_ai_demo.cache.SingleFlight;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.dto.UserFilter;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+import spring.ai.example.spring_ai_demo.service.UserCountService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline for the CPU spent in UserController outside the database: DTO
+ * mapping, per-item HATEOAS link building, PagedModel assembly and HAL JSON
+ * serialization of a page. The repository is a stub returning a fixed page of
+ * DTO projections.
+ * Page benchmarks bind a fresh request per call so the assembler's per-request
+ * href lookup is included; {@code methodOnItemLinks} keeps the proxy-based link
+ * building the assembler replaced, for comparison. The {@code pageWrite*}
+ * benchmarks write the same page to a reused stream through Jackson HAL and
+ * through {@link UserHalMessageConverter}; run them with {@code -prof gc} to
+ * compare bytes allocated per response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private UserController controller;
+    private UserModelAssembler assembler;
+    private ServletWebRequest webRequest;
+    private ObjectMapper halMapper;
+    private User user;
+    private UserDTO dto;
+    private Pageable pageable;
+    private PagedModel<EntityModel<UserDTO>> page;
+    private UserHalMessageConverter halConverter;
+    private ByteArrayOutputStream sink;
+    private HttpOutputMessage response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<User> users = new ArrayList<>(pageSize);
+        List<UserDTO> dtos = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            User user = user(id);
+            users.add(user);
+            dtos.add(new UserDTO(id, user.getName(), user.getEmail(), user.getPhoneNumber(), user.getStatus()));
+        }
+        pageable = PageRequest.of(0, pageSize);
+        PageImpl<UserDTO> result = new PageImpl<>(dtos, pageable, 1_000_000);
+
+        UserRepository repository = (UserRepository) Proxy.newProxyInstance(
+            UserRepository.class.getClassLoader(),
+            new Class<?>[] {UserRepository.class},
+            (proxy, method, args) -> method.getName().equals("findDtos") ? result : null);
+        assembler = new UserModelAssembler();
+        controller = new UserController(repository, null, assembler, null, null,
+            new UserCountService(repository, new ConcurrentMapCacheManager(), false), null,
+            new SingleFlight(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), Duration.ofSeconds(1)));
+
+        halMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+
+        user = users.get(0);
+        dto = controller.convertToDTO(user);
+
+        page = getAllUsers();
+
+        halConverter = new UserHalMessageConverter(new DefaultLinkRelationProvider());
+        sink = new ByteArrayOutputStream(pageSize * 512);
+        HttpHeaders headers = new HttpHeaders();
+        response = new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return sink;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    @Setup(Level.Iteration)
+    public void bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users");
+        request.setServerName("api.example.com");
+        webRequest = new ServletWebRequest(request, new MockHttpServletResponse());
+        RequestContextHolder.setRequestAttributes(webRequest);
+    }
+
+    private PagedModel<EntityModel<UserDTO>> getAllUsers() {
+        bindRequest();
+        return controller.getAllUsers(UserFilter.none(), NameMatch.CONTAINS, null, pageable, webRequest).getBody();
+    }
+
+    @TearDown(Level.Iteration)
+    public void unbindRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public UserDTO convertToDTO() {
+        return controller.convertToDTO(user);
+    }
+
+    @Benchmark
+    public User convertToEntity() {
+        return controller.convertToEntity(dto);
+    }
+
+    @Benchmark
+    public EntityModel<UserDTO> itemLinks() {
+        return assembler.toModel(controller.convertToDTO(user));
+    }
+
+    @Benchmark
+    public EntityModel<UserDTO> methodOnItemLinks() {
+        return EntityModel.of(controller.convertToDTO(user))
+            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
+                .getUserById(user.getId(), null)).withSelfRel())
+            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
+                .updateUser(user.getId(), null, null, null)).withRel("update"))
+            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
+                .deleteUser(user.getId(), null)).withRel("delete"));
+    }
+
+    @Benchmark
+    public PagedModel<EntityModel<UserDTO>> pageAssembly() {
+        return getAllUsers();
+    }
+
+    @Benchmark
+    public byte[] pageSerialization() throws Exception {
+        return halMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public int pageWriteJackson() throws Exception {
+        sink.reset();
+        halMapper.writeValue(sink, page);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int pageWriteConverter() throws Exception {
+        sink.reset();
+        halConverter.write(page, null, MediaTypes.HAL_JSON, response);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int pageWriteConverterCbor() throws Exception {
+        sink.reset();
+        halConverter.write(page, null, MediaType.APPLICATION_CBOR, response);
+        return sink.size();
+    }
+
+    @Benchmark
+    public byte[] pageEndToEnd() throws Exception {
+        return halMapper.writeValueAsBytes(getAllUsers());
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("Benchmark User " + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setPhoneNumber("+1234567890");
+        user.setStatus(User.UserStatus.ACTIVE);
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        user.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        return user;
+    }
+}
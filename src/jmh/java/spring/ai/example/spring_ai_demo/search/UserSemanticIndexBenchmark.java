@@ -0,0 +1,96 @@
+package spring.ai.example.spring_ai_demo.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link UserSemanticIndex} once populated. Vectors come from
+ * the test {@link HashingEmbeddingModel}; query text embeddings are cached, so
+ * both benchmarks measure the HNSW lookup only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSemanticIndexBenchmark {
+
+    private static final String[] FIRST = {"Jonathan", "Mary", "Priscilla", "Ahmed", "Wei", "Olga", "Carlos", "Aiko"};
+    private static final String[] LAST = {"Smith", "Major", "Queen", "Haddad", "Zhang", "Ivanova", "Garcia", "Sato"};
+
+    @Param({"50000"})
+    private int users;
+
+    private UserSemanticIndex index;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        UserRepository repository = (UserRepository) Proxy.newProxyInstance(
+            UserRepository.class.getClassLoader(),
+            new Class<?>[] {UserRepository.class},
+            (proxy, method, args) -> method.getName().equals("findDtosByIds")
+                ? ((Collection<Long>) args[0]).stream().map(UserSemanticIndexBenchmark::user).toList()
+                : null);
+        // Nothing persisted, so every user is embedded
+        UserEmbeddingStore store = new UserEmbeddingStore(null) {
+            @Override
+            public Map<Long, StoredEmbedding> findByUserIds(Collection<Long> userIds) {
+                return Map.of();
+            }
+
+            @Override
+            public void saveAll(List<StoredEmbedding> embeddings) {
+            }
+
+            @Override
+            public void deleteByUserIds(Collection<Long> userIds) {
+            }
+        };
+        index = new UserSemanticIndex(repository, store, new HashingEmbeddingModel(), 256, Duration.ofMillis(200));
+        for (long id = 1; id <= users; id++) {
+            index.onUserChanged(UserChangedEvent.created(id, null));
+        }
+        index.flush();
+        index.search("jonathan smith", 10);
+    }
+
+    @Benchmark
+    public List<UserSemanticIndex.Match> searchByText() {
+        return index.search("jonathan smith", 10);
+    }
+
+    @Benchmark
+    public Optional<List<UserSemanticIndex.Match>> similarToUser() {
+        return index.similarTo(ThreadLocalRandom.current().nextLong(1, users + 1), 10);
+    }
+
+    private static UserDTO user(Long id) {
+        String name = FIRST[(int) (id % FIRST.length)] + " " + LAST[(int) (id / FIRST.length % LAST.length)] + " " + id;
+        return new UserDTO(id, name, "user" + id + "@example.com", null, User.UserStatus.ACTIVE);
+    }
+}
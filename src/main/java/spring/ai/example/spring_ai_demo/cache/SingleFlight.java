@@ -0,0 +1,104 @@
+package spring.ai.example.spring_ai_demo.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical reads share one database call: the first caller
+ * for a key runs the loader on its own thread, and callers arriving while it
+ * runs wait for its result (or its exception) instead of taking a connection
+ * of their own. A waiter gives up after {@code max-wait} and runs the loader
+ * itself.
+ * <p>
+ * Callers pinned to the primary neither start nor join a shared read, since
+ * a read already in flight may have started before their own write. A caller
+ * that shares a read is credited with its {@link DatabaseTime}.
+ * <p>
+ * {@code user.reads} counts calls per query, tagged with whether they
+ * executed, shared, timed out or bypassed.
+ */
+@Component
+public class SingleFlight {
+
+    private record Key(String query, Object args) {
+    }
+
+    private final Map<Key, CompletableFuture<DatabaseTime.Timed<?>>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final MeterRegistry registry;
+
+    public SingleFlight(ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${app.users.single-flight.max-wait:1s}") Duration maxWait) {
+        this.maxWait = maxWait;
+        this.registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("user.reads.in-flight", inFlight, Map::size)
+            .description("Distinct reads currently shared by concurrent callers")
+            .register(registry);
+    }
+
+    /**
+     * @param query names the read, for metrics; calls share a result only if both it
+     *              and {@code args} are equal
+     * @param args  everything the result depends on; must implement {@code equals}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String query, Object args, Supplier<T> loader) {
+        if (ReadWriteRoutingDataSource.isPinnedToPrimary()) {
+            count(query, "bypassed");
+            return loader.get();
+        }
+        Key key = new Key(query, args);
+        CompletableFuture<DatabaseTime.Timed<?>> flight = new CompletableFuture<>();
+        CompletableFuture<DatabaseTime.Timed<?>> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            count(query, "executed");
+            try {
+                DatabaseTime.Timed<T> result = DatabaseTime.time(loader);
+                flight.complete(result);
+                return result.value();
+            } catch (Throwable e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        try {
+            DatabaseTime.Timed<T> result =
+                (DatabaseTime.Timed<T>) existing.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            count(query, "shared");
+            // The leader's database time was spent for this caller too
+            DatabaseTime.add(result.sample());
+            return result.value();
+        } catch (TimeoutException e) {
+            count(query, "timed_out");
+            return loader.get();
+        } catch (ExecutionException e) {
+            count(query, "shared");
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + query, e);
+        }
+    }
+
+    private void count(String query, String outcome) {
+        registry.counter("user.reads", "query", query, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,128 @@
+package spring.ai.example.spring_ai_demo.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of {@link UserDTO} snapshots keyed by id and by email.
+ * The backing store is whatever {@link CacheManager} is configured (Caffeine by
+ * default, see {@code spring.cache.*}), and entries are evicted when a
+ * {@link UserChangedEvent} is published for the user.
+ * <p>
+ * A load can read a row just before a change to it commits and finish after
+ * the eviction. Each eviction therefore bumps a generation counter for the
+ * user's id (striped, so the counters stay bounded), and a load only leaves
+ * its result in the cache if the generation it started with is still current.
+ */
+@Component
+public class UserCache {
+
+    public static final String BY_ID = "users";
+    public static final String BY_EMAIL = "usersByEmail";
+
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final Cache byId;
+    private final Cache byEmail;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public UserCache(CacheManager cacheManager) {
+        this.byId = cacheManager.getCache(BY_ID);
+        this.byEmail = cacheManager.getCache(BY_EMAIL);
+    }
+
+    public Optional<UserDTO> findById(Long id, Function<Long, Optional<UserDTO>> loader) {
+        UserDTO cached = byId.get(id, UserDTO.class);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long generation = generation(id);
+        Optional<UserDTO> loaded = loader.apply(id);
+        loaded.ifPresent(user -> putIfCurrent(user, generation));
+        return loaded;
+    }
+
+    /**
+     * The cached users among {@code ids}, plus whatever one call to
+     * {@code loader} returns for the rest; ids found by neither are absent.
+     * The loader is not called when every id is cached.
+     */
+    public Map<Long, UserDTO> findAllById(Collection<Long> ids, Function<Collection<Long>, List<UserDTO>> loader) {
+        Map<Long, UserDTO> found = new HashMap<>();
+        Map<Long, Long> missing = new LinkedHashMap<>();
+        for (Long id : ids) {
+            UserDTO cached = byId.get(id, UserDTO.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.put(id, generation(id));
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (UserDTO loaded : loader.apply(List.copyOf(missing.keySet()))) {
+                putIfCurrent(loaded, missing.get(loaded.getId()));
+                found.put(loaded.getId(), loaded);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Whether the email is known to be taken. Only positive answers are cached,
+     * so callers let the database settle the negative case.
+     */
+    public boolean emailCached(String email) {
+        return byEmail.get(email) != null;
+    }
+
+    public void put(UserDTO user) {
+        byId.put(user.getId(), user);
+        byEmail.put(user.getEmail(), user);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() == UserChangedEvent.Type.CREATED) {
+            return;
+        }
+        generations.incrementAndGet(stripe(event.id()));
+        byId.evict(event.id());
+        if (event.email() != null) {
+            byEmail.evict(event.email());
+        }
+        if (event.previousEmail() != null) {
+            byEmail.evict(event.previousEmail());
+        }
+    }
+
+    // Put first and check after: an eviction racing the check either bumped the
+    // generation before it (and this evicts) or runs after the put (and removes it)
+    private void putIfCurrent(UserDTO user, long generation) {
+        put(user);
+        if (generation(user.getId()) != generation) {
+            byId.evict(user.getId());
+            byEmail.evict(user.getEmail());
+        }
+    }
+
+    private long generation(Long id) {
+        return generations.get(stripe(id));
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+}
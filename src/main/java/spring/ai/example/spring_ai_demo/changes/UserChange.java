@@ -0,0 +1,16 @@
+package spring.ai.example.spring_ai_demo.changes;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * One published entry of the user change log. {@code user} is the row as written
+ * by the change, as JSON; for a delete it only holds {@code id} and {@code email}.
+ *
+ * @param seq position in the log; consumers resume with {@code ?since=<seq>}
+ */
+public record UserChange(long seq, long userId, UserChangedEvent.Type type, Long version,
+                         @JsonRawValue String user, LocalDateTime changedAt) {
+}
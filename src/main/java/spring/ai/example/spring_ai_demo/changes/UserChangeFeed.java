@@ -0,0 +1,279 @@
+package spring.ai.example.spring_ai_demo.changes;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the {@link UserChangeLog} outbox and streams it to SSE subscribers.
+ * <p>
+ * A single background thread numbers pending changes, then loads the newly
+ * published ones, from any instance, into a bounded window of recent changes.
+ * Subscribers near the head are served from that window, so the database is read
+ * once per batch however many are connected; a subscriber further behind pages
+ * through the database instead. Each subscriber is written to by its own task,
+ * only while it has changes to catch up on, so a slow consumer holds back no one
+ * but itself and nothing is queued for it in memory.
+ */
+@Component
+public class UserChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeFeed.class);
+
+    private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(10);
+
+    private final UserChangeLog changeLog;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final int windowSize;
+    private final int maxSubscribers;
+    private final Duration retention;
+    private final Duration connectionTimeout;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Most recent published changes in seq order, replaced as a whole by the relay thread
+    private volatile List<UserChange> window = List.of();
+    private volatile long head;
+    private long nextCleanup = System.nanoTime();
+
+    public UserChangeFeed(UserChangeLog changeLog, ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${app.users.changes.poll-interval:200ms}") Duration pollInterval,
+                          @Value("${app.users.changes.batch-size:500}") int batchSize,
+                          @Value("${app.users.changes.window-size:10000}") int windowSize,
+                          @Value("${app.users.changes.max-subscribers:100}") int maxSubscribers,
+                          @Value("${app.users.changes.retention:7d}") Duration retention,
+                          @Value("${app.users.changes.connection-timeout:30m}") Duration connectionTimeout) {
+        this.changeLog = changeLog;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.windowSize = windowSize;
+        this.maxSubscribers = maxSubscribers;
+        this.retention = retention;
+        this.connectionTimeout = connectionTimeout;
+        meterRegistry.ifAvailable(registry -> Gauge.builder("user.changes.subscribers", subscribers, Set::size)
+            .description("Connected /api/v1/users/changes streams")
+            .register(registry));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relay.execute(() -> head = changeLog.latestSeq());
+        relay.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        relay.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    /**
+     * The highest sequence number published so far.
+     */
+    public long head() {
+        return head;
+    }
+
+    /**
+     * Whether every change after {@code since} is still kept. If not, the consumer
+     * has to resynchronize from a full read before following the feed again.
+     */
+    public boolean isRetained(long since) {
+        if (since >= head) {
+            return true;
+        }
+        OptionalLong oldest = changeLog.oldestSeq();
+        return oldest.isPresent() && since >= oldest.getAsLong() - 1;
+    }
+
+    /**
+     * Streams every change after {@code since}, then new ones as they are
+     * published. Empty if {@code app.users.changes.max-subscribers} are connected.
+     */
+    public Optional<SseEmitter> subscribe(long since) {
+        if (subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(connectionTimeout.toMillis()), since);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        signal(subscriber);
+        return Optional.of(subscriber.emitter);
+    }
+
+    void poll() {
+        try {
+            while (changeLog.publishPending(batchSize) == batchSize) {
+                // keep numbering until the backlog is drained
+            }
+            List<UserChange> published;
+            do {
+                published = changeLog.readAfter(head, batchSize);
+                append(published);
+            } while (published.size() == batchSize);
+            cleanUpIfDue();
+        } catch (RuntimeException e) {
+            log.warn("User change relay failed, retrying in {}: {}", pollInterval, e.toString());
+        }
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.cursor < head || now - subscriber.lastSent >= HEARTBEAT.toNanos()) {
+                signal(subscriber);
+            }
+        }
+    }
+
+    private void append(List<UserChange> published) {
+        if (published.isEmpty()) {
+            return;
+        }
+        List<UserChange> current = window;
+        int keep = Math.max(0, Math.min(current.size(), windowSize - published.size()));
+        List<UserChange> next = new ArrayList<>(keep + published.size());
+        next.addAll(current.subList(current.size() - keep, current.size()));
+        next.addAll(published.size() > windowSize
+            ? published.subList(published.size() - windowSize, published.size())
+            : published);
+        window = List.copyOf(next);
+        head = published.get(published.size() - 1).seq();
+    }
+
+    private void cleanUpIfDue() {
+        long now = System.nanoTime();
+        if (now - nextCleanup < 0) {
+            return;
+        }
+        nextCleanup = now + CLEANUP_INTERVAL.toNanos();
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int limit = batchSize * 10;
+        while (changeLog.deletePublishedBefore(cutoff, limit) == limit) {
+            // small transactions, so the delete never holds many row locks at once
+        }
+    }
+
+    private void signal(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> send(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            List<UserChange> batch;
+            while (!subscriber.closed && !(batch = changesAfter(subscriber.cursor)).isEmpty()) {
+                Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+                for (UserChange change : batch) {
+                    events.addAll(SseEmitter.event()
+                        .id(Long.toString(change.seq()))
+                        .name(change.type().name())
+                        .data(change, MediaType.APPLICATION_JSON)
+                        .build());
+                }
+                // One write and flush per batch; blocks while this client is slow to read
+                subscriber.emitter.send(events);
+                subscriber.cursor = batch.get(batch.size() - 1).seq();
+                subscriber.lastSent = System.nanoTime();
+            }
+            if (!subscriber.closed && System.nanoTime() - subscriber.lastSent >= HEARTBEAT.toNanos()) {
+                // Keeps proxies from closing an idle stream
+                subscriber.emitter.send(SseEmitter.event().comment(""));
+                subscriber.lastSent = System.nanoTime();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The container reports the broken connection through onError as well
+            unsubscribe(subscriber);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // A change published while this task was finishing would otherwise wait for the next poll
+        if (!subscriber.closed && subscriber.cursor < head) {
+            signal(subscriber);
+        }
+    }
+
+    private List<UserChange> changesAfter(long cursor) {
+        List<UserChange> current = window;
+        if (!current.isEmpty() && cursor >= current.get(0).seq() - 1) {
+            int from = firstAfter(current, cursor);
+            return current.subList(from, Math.min(current.size(), from + batchSize));
+        }
+        return cursor < head ? changeLog.readAfter(cursor, batchSize) : List.of();
+    }
+
+    private static int firstAfter(List<UserChange> changes, long seq) {
+        int low = 0;
+        int high = changes.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (changes.get(mid).seq() <= seq) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile long cursor;
+        volatile long lastSent = System.nanoTime();
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package spring.ai.example.spring_ai_demo.changes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * JDBC access to the {@code user_changes} outbox (V5 migration), which a trigger
+ * fills in the same transaction as each write to {@code users}.
+ */
+@Repository
+public class UserChangeLog {
+
+    // Any constant shared by all instances; only the holder may number changes
+    static final long PUBLISH_LOCK = 0x7573_6572_6368_67L;
+
+    // Numbering under the lock, in a transaction of its own, makes seq follow
+    // commit order: a change committed after this runs gets a higher seq next time
+    private static final String PUBLISH = """
+        update user_changes c
+        set seq = n.seq
+        from (
+            select id, row_number() over (order by id) + (select coalesce(max(seq), 0) from user_changes) as seq
+            from (select id from user_changes where seq is null order by id limit ?) batch
+        ) n
+        where c.id = n.id""";
+
+    private static final String READ_AFTER = """
+        select seq, user_id, type, version, payload::text as payload, changed_at
+        from user_changes where seq > ? order by seq limit ?""";
+
+    private static final String DELETE_PUBLISHED_BEFORE = """
+        delete from user_changes where id in (
+            select id from user_changes where seq is not null and changed_at < ? order by changed_at limit ?)""";
+
+    private static final RowMapper<UserChange> USER_CHANGE = (rs, rowNum) -> new UserChange(
+        rs.getLong("seq"),
+        rs.getLong("user_id"),
+        UserChangedEvent.Type.valueOf(rs.getString("type")),
+        rs.getObject("version", Long.class),
+        rs.getString("payload"),
+        rs.getTimestamp("changed_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserChangeLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Gives up to {@code limit} unpublished changes the next sequence numbers, in
+     * the order they were recorded. Returns 0 without waiting if another instance
+     * is publishing.
+     */
+    @Transactional
+    public int publishPending(int limit) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class,
+                PUBLISH_LOCK))) {
+            return 0;
+        }
+        return jdbcTemplate.update(PUBLISH, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserChange> readAfter(long seq, int limit) {
+        return jdbcTemplate.query(READ_AFTER, USER_CHANGE, seq, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public long latestSeq() {
+        return jdbcTemplate.queryForObject("select coalesce(max(seq), 0) from user_changes", Long.class);
+    }
+
+    /**
+     * The lowest sequence number still kept, or empty if none is.
+     */
+    @Transactional(readOnly = true)
+    public OptionalLong oldestSeq() {
+        Long oldest = jdbcTemplate.queryForObject("select min(seq) from user_changes", Long.class);
+        return oldest != null ? OptionalLong.of(oldest) : OptionalLong.empty();
+    }
+
+    /**
+     * Deletes up to {@code limit} published changes recorded before {@code cutoff},
+     * oldest first.
+     */
+    @Transactional
+    public int deletePublishedBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_PUBLISHED_BEFORE, Timestamp.valueOf(cutoff), limit);
+    }
+}
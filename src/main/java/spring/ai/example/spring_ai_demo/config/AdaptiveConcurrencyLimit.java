@@ -0,0 +1,77 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+
+import java.time.Duration;
+
+/**
+ * An AIMD concurrency limit driven by database timings. A request that waited
+ * longer than the connection-wait target for a connection, or ran a statement
+ * slower than the statement target, shrinks the limit by the backoff ratio;
+ * any other request grows it by {@code 1/limit}, so about one per limit's worth
+ * of requests. The limit only grows while at least half of it is in use, so a
+ * quiet period does not leave it far above what was ever tested.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long connectionWaitTargetNanos;
+    private final long statementTargetNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private long rejected;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                             Duration connectionWaitTarget, Duration statementTarget, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.connectionWaitTargetNanos = connectionWaitTarget.toNanos();
+        this.statementTargetNanos = statementTarget.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    /**
+     * @return false, without waiting, if the limit is reached
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a request that says nothing about load, such as one that went async.
+     */
+    synchronized void release() {
+        inFlight--;
+    }
+
+    synchronized void release(DatabaseTime.Sample sample) {
+        inFlight--;
+        if (sample.connectionWaitNanos() > connectionWaitTargetNanos
+                || sample.slowestStatementNanos() > statementTargetNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight + 1 >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized long rejected() {
+        return rejected;
+    }
+}
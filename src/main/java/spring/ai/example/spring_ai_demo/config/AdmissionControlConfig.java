@@ -0,0 +1,93 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Adaptive admission control for the API ({@code app.admission.*}) and the
+ * {@code /actuator/connectionpool} endpoint, which is registered either way.
+ * With admission control on, requests no longer queue for connections, so the
+ * pool's connection timeout is lowered to {@code app.admission.connection-timeout}.
+ */
+@Configuration
+public class AdmissionControlConfig {
+
+    // Before initialization: after spring.datasource.hikari.* is bound, and before the
+    // connection bulkhead (VirtualThreadConfig) reads the timeout
+    @Bean
+    @ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+    static BeanPostProcessor admissionConnectionTimeoutPostProcessor(Environment environment) {
+        Duration timeout = environment.getProperty("app.admission.connection-timeout",
+            Duration.class, Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    hikari.setConnectionTimeout(timeout.toMillis());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+    AdaptiveConcurrencyLimit admissionLimit(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.admission.initial-limit:20}") int initialLimit,
+            @Value("${app.admission.min-limit:2}") int minLimit,
+            @Value("${app.admission.max-limit:200}") int maxLimit,
+            @Value("${app.admission.connection-wait-target:50ms}") Duration connectionWaitTarget,
+            @Value("${app.admission.statement-target:250ms}") Duration statementTarget,
+            @Value("${app.admission.backoff-ratio:0.9}") double backoffRatio) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+            initialLimit, minLimit, maxLimit, connectionWaitTarget, statementTarget, backoffRatio);
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("http.admission.limit", limit, AdaptiveConcurrencyLimit::limit)
+                .description("Concurrent API requests currently admitted at most")
+                .register(registry);
+            Gauge.builder("http.admission.in-flight", limit, AdaptiveConcurrencyLimit::inFlight)
+                .description("API requests currently admitted")
+                .register(registry);
+        });
+        return limit;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+    FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            AdaptiveConcurrencyLimit admissionLimit,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.admission.retry-after:1s}") Duration retryAfter) {
+        Counter rejected = Counter.builder("http.admission.rejected")
+            .description("API requests answered 503 because the admission limit was reached")
+            .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+            new FilterRegistrationBean<>(new AdmissionControlFilter(admissionLimit, retryAfter, rejected));
+        registration.addUrlPatterns("/api/*");
+        // Inside the http.server.requests timing, so rejections show up there, and ahead of everything else
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+
+    @Bean
+    ConnectionPoolEndpoint connectionPoolEndpoint(DataSource dataSource, ObjectProvider<MeterRegistry> meterRegistry,
+                                                  ObjectProvider<AdaptiveConcurrencyLimit> admissionLimit) {
+        return new ConnectionPoolEndpoint(dataSource, meterRegistry.getIfAvailable(), admissionLimit.getIfAvailable());
+    }
+}
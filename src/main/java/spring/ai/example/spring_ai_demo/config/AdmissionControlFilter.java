@@ -0,0 +1,56 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Admits requests up to the {@link AdaptiveConcurrencyLimit} and answers the
+ * rest at once with {@code 503} and {@code Retry-After}, rather than letting them
+ * hold a request thread while queued for a connection. Each admitted request's
+ * {@link DatabaseTime} feeds the limit.
+ */
+class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final String retryAfter;
+    private final Counter rejected;
+
+    AdmissionControlFilter(AdaptiveConcurrencyLimit limit, Duration retryAfter, Counter rejected) {
+        this.limit = limit;
+        this.retryAfter = Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+        this.rejected = rejected;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!limit.tryAcquire()) {
+            rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+        DatabaseTime.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DatabaseTime.Sample sample = DatabaseTime.stop();
+            // Streaming responses (export, change feed) carry on past this point; only their slot is counted
+            if (request.isAsyncStarted()) {
+                limit.release();
+            } else {
+                limit.release(sample);
+            }
+        }
+    }
+}
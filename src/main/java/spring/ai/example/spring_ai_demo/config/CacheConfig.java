@@ -0,0 +1,28 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import spring.ai.example.spring_ai_demo.service.UserCountService;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Listing totals go stale on their own TTL, much shorter than the spring.cache.caffeine.spec one
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> userCountCacheCustomizer(
+            @Value("${app.users.count.cache-ttl:30s}") Duration ttl) {
+        return cacheManager -> cacheManager.registerCustomCache(UserCountService.CACHE, Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build());
+    }
+}
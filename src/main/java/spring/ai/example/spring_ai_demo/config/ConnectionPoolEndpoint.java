@@ -0,0 +1,111 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /actuator/connectionpool}: the primary Hikari pool's state, the admission
+ * limit, and a recommended {@code maximum-pool-size}. The recommendation applies
+ * Little's law to {@code hikaricp.connections.usage}: the connection-time used
+ * since the previous read, over the time elapsed, is the average number of
+ * connections in use, which the pool should hold at {@value #TARGET_UTILIZATION}
+ * utilization. It never goes below the connections in use or awaited right now.
+ */
+@Endpoint(id = "connectionpool")
+public class ConnectionPoolEndpoint {
+
+    static final double TARGET_UTILIZATION = 0.7;
+
+    private final DataSource dataSource;
+    private final MeterRegistry registry;
+    private final AdaptiveConcurrencyLimit limit;
+
+    private long lastUsageNanos;
+    private long lastReadAt = System.nanoTime();
+
+    /**
+     * @param registry for the usage timer, or {@code null} to go by current use only
+     * @param limit    the admission limit, or {@code null} if admission control is off
+     */
+    ConnectionPoolEndpoint(DataSource dataSource, MeterRegistry registry, AdaptiveConcurrencyLimit limit) {
+        this.dataSource = dataSource;
+        this.registry = registry;
+        this.limit = limit;
+    }
+
+    public record Pool(String name, int maximumPoolSize, int active, int idle, int awaiting,
+                       long connectionTimeoutMillis) {
+    }
+
+    public record Admission(int limit, int inFlight, long rejected) {
+    }
+
+    public record Recommendation(int maximumPoolSize, double averageInUse, String reason) {
+    }
+
+    public record Report(Pool pool, Admission admission, Recommendation recommendation) {
+    }
+
+    @ReadOperation
+    public synchronized Report connectionPool() {
+        Admission admission = limit != null ? new Admission(limit.limit(), limit.inFlight(), limit.rejected()) : null;
+        HikariDataSource hikari = hikari();
+        HikariPoolMXBean bean = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (bean == null) {
+            return new Report(null, admission, null);
+        }
+        Pool pool = new Pool(hikari.getPoolName(), hikari.getMaximumPoolSize(), bean.getActiveConnections(),
+            bean.getIdleConnections(), bean.getThreadsAwaitingConnection(), hikari.getConnectionTimeout());
+        return new Report(pool, admission, recommend(pool));
+    }
+
+    private Recommendation recommend(Pool pool) {
+        double inUse = averageInUse(pool);
+        int recommended = (int) Math.max(1, Math.max(Math.ceil(inUse / TARGET_UTILIZATION),
+            pool.active() + pool.awaiting()));
+        String reason;
+        if (recommended > pool.maximumPoolSize()) {
+            reason = String.format(Locale.ROOT, "%.2f connections in use on average, %d awaited now: a larger pool "
+                + "should shorten connection waits, if the database has capacity to spare", inUse, pool.awaiting());
+        } else if (recommended < pool.maximumPoolSize()) {
+            reason = String.format(Locale.ROOT, "%.2f connections in use on average: a smaller pool would serve "
+                + "the same load and leave connections to other clients of the database", inUse);
+        } else {
+            reason = "The pool fits the load";
+        }
+        return new Recommendation(recommended, Math.round(inUse * 100) / 100.0, reason);
+    }
+
+    // Over the window since the previous read; Hikari records each connection's hold time on its return
+    private double averageInUse(Pool pool) {
+        Timer usage = registry != null
+            ? registry.find("hikaricp.connections.usage").tag("pool", pool.name()).timer()
+            : null;
+        if (usage == null) {
+            return pool.active();
+        }
+        long now = System.nanoTime();
+        long used = (long) usage.totalTime(TimeUnit.NANOSECONDS);
+        double inUse = now > lastReadAt ? (double) (used - lastUsageNanos) / (now - lastReadAt) : pool.active();
+        lastUsageNanos = used;
+        lastReadAt = now;
+        return inUse;
+    }
+
+    private HikariDataSource hikari() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import spring.ai.example.spring_ai_demo.jdbc.InstrumentedDataSource;
+import spring.ai.example.spring_ai_demo.jdbc.QueryProfiler;
+
+import javax.sql.DataSource;
+
+/**
+ * Application meters on top of the actuator defaults: SQL statements per request,
+ * JSON serialization time and the {@link QueryProfiler} behind {@code /actuator/queries}. Endpoint, repository and Hikari timers are the
+ * auto-configured ones; their percentiles and SLO buckets are set in
+ * {@code application.properties}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<QueryProfiler> queryProfiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, queryProfiler.getIfAvailable());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.jdbc.profiler.enabled", havingValue = "true", matchIfMissing = true)
+    QueryProfiler queryProfiler(
+            @Value("${app.jdbc.profiler.sample-rate:0.01}") double sampleRate,
+            @Value("${app.jdbc.profiler.max-statements:500}") int maxStatements) {
+        return new QueryProfiler(sampleRate, maxStatements);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.jdbc.profiler.enabled", havingValue = "true", matchIfMissing = true)
+    QueryProfilerEndpoint queryProfilerEndpoint(QueryProfiler queryProfiler) {
+        return new QueryProfilerEndpoint(queryProfiler);
+    }
+
+    @Bean
+    WebMvcConfigurer serializationTimingConfigurer(SerializationTimingAdvice serializationTimingAdvice) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(serializationTimingAdvice);
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<StatementCountFilter> statementCountFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.metrics.jdbc.statements-threshold:10}") int threshold) {
+        FilterRegistrationBean<StatementCountFilter> registration =
+            new FilterRegistrationBean<>(new StatementCountFilter(meterRegistry, threshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
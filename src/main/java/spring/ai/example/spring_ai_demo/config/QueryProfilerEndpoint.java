@@ -0,0 +1,38 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import spring.ai.example.spring_ai_demo.jdbc.QueryProfiler;
+
+import java.util.List;
+
+/**
+ * {@code /actuator/queries}: per-statement aggregates from the {@link QueryProfiler},
+ * most expensive first. {@code DELETE} starts a new measurement window.
+ */
+@Endpoint(id = "queries")
+public class QueryProfilerEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final QueryProfiler profiler;
+
+    QueryProfilerEndpoint(QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public record Report(long droppedSamples, List<QueryProfiler.QueryStats> statements) {
+    }
+
+    @ReadOperation
+    public Report queries(@Nullable Integer limit) {
+        return new Report(profiler.droppedSamples(), profiler.top(limit != null ? limit : DEFAULT_LIMIT));
+    }
+
+    @DeleteOperation
+    public void reset() {
+        profiler.reset();
+    }
+}
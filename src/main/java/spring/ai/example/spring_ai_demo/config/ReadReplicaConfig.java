@@ -0,0 +1,101 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Active when {@code app.datasource.routing.enabled=true}: read-only transactions
+ * go to the pools listed in {@code app.datasource.replica.urls}, everything else to
+ * the primary {@code spring.datasource.*} pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    // Declared as Ordered so it is registered after the bulkhead (which must see the
+    // HikariDataSource) and before the unordered instrumentation wrapper
+    @Bean
+    static RoutingPostProcessor readWriteRoutingPostProcessor(ObjectProvider<ReplicaPools> replicaPools) {
+        return new RoutingPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource primary) || !beanName.equals("dataSource")) {
+                    return bean;
+                }
+                return new ReadWriteRoutingDataSource(primary, replicaPools.getObject().pools());
+            }
+        };
+    }
+
+    /**
+     * A bean of its own rather than owned by the routing proxy: the container only
+     * closes the pool it created for {@code dataSource}, not what wraps it.
+     */
+    @Bean(destroyMethod = "close")
+    static ReplicaPools replicaPools(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        String[] urls = environment.getProperty("app.datasource.replica.urls", String[].class, new String[0]);
+        for (int i = 0; i < urls.length; i++) {
+            pools.add(replica(environment, urls[i].trim(), "replica-" + (i + 1), meterRegistry));
+        }
+        return new ReplicaPools(pools);
+    }
+
+    @Bean
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(Environment environment) {
+        Duration window = environment.getProperty("app.datasource.routing.read-your-writes-window",
+            Duration.class, Duration.ofSeconds(5));
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+            new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    private static HikariDataSource replica(Environment environment, String url, String poolName,
+                                            ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName(poolName);
+        replica.setJdbcUrl(url);
+        replica.setUsername(environment.getProperty("app.datasource.replica.username",
+            environment.getProperty("spring.datasource.username")));
+        replica.setPassword(environment.getProperty("app.datasource.replica.password",
+            environment.getProperty("spring.datasource.password")));
+        replica.setMaximumPoolSize(environment.getProperty("app.datasource.replica.maximum-pool-size",
+            Integer.class, 5));
+        replica.setMinimumIdle(environment.getProperty("app.datasource.replica.minimum-idle", Integer.class, 1));
+        replica.setConnectionTimeout(environment.getProperty("app.datasource.replica.connection-timeout",
+            Duration.class, Duration.ofSeconds(2)).toMillis());
+        replica.setReadOnly(true);
+        meterRegistry.ifAvailable(registry -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return replica;
+    }
+
+    record ReplicaPools(List<HikariDataSource> pools) implements AutoCloseable {
+        @Override
+        public void close() {
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+
+    interface RoutingPostProcessor extends BeanPostProcessor, Ordered {
+        @Override
+        default int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+}
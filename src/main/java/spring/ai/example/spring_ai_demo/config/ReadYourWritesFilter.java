@@ -0,0 +1,84 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes for clients that keep cookies: a write sets a cookie holding
+ * the end of the stickiness window, and until then that client's reads are
+ * served by the primary instead of a possibly lagging replica.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "primary-until";
+
+    private final Duration window;
+
+    ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (isWrite(request)) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + window.toMillis()));
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        boolean pinned = isWrite(request) || pinnedUntil(request) > now;
+        if (pinned) {
+            ReadWriteRoutingDataSource.pinToPrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (pinned) {
+                ReadWriteRoutingDataSource.unpin();
+            }
+        }
+    }
+
+    // POST ...:batchGet only carries its ids in the body; it writes nothing
+    private static boolean isWrite(HttpServletRequest request) {
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        if (method == HttpMethod.POST && request.getRequestURI().endsWith(":batchGet")) {
+            return false;
+        }
+        return method == HttpMethod.POST || method == HttpMethod.PUT
+            || method == HttpMethod.PATCH || method == HttpMethod.DELETE;
+    }
+
+    /**
+     * The cookie only ever moves this client's own reads to the primary, so a
+     * forged value is harmless beyond the window it could claim.
+     */
+    private long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.min(Long.parseLong(cookie.getValue()), System.currentTimeMillis() + window.toMillis());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
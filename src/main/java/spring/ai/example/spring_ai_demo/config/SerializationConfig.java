@@ -0,0 +1,41 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import spring.ai.example.spring_ai_demo.controller.UserHalMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts {@link UserHalMessageConverter} first among the MVC converters. As a bean it
+ * is only placed ahead of the defaults; Spring Data then inserts its projecting
+ * Jackson converter in front of everything, and that one writes any JSON.
+ */
+@Configuration
+public class SerializationConfig {
+
+    @Bean
+    static BeanPostProcessor userHalMessageConverterPostProcessor(
+            ObjectProvider<UserHalMessageConverter> userHalMessageConverter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                UserHalMessageConverter converter;
+                if (!(bean instanceof RequestMappingHandlerAdapter adapter)
+                        || (converter = userHalMessageConverter.getIfAvailable()) == null) {
+                    return bean;
+                }
+                List<HttpMessageConverter<?>> converters = new ArrayList<>(adapter.getMessageConverters());
+                converters.remove(converter);
+                converters.add(0, converter);
+                adapter.setMessageConverters(converters);
+                return bean;
+            }
+        };
+    }
+}
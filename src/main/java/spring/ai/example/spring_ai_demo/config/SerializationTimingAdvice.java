@@ -0,0 +1,71 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import spring.ai.example.spring_ai_demo.controller.UserHalMessageConverter;
+
+/**
+ * Times response-body writes of the Jackson and HAL converters as
+ * {@code http.server.serialization}, tagged with the body's type. The timer
+ * starts right before the converter writes and stops once the handler has
+ * completed (registered as an interceptor by {@link MetricsConfig}). The
+ * converters themselves are left alone, so advice keyed on their type (such as
+ * {@code @JsonView} support) keeps applying.
+ */
+@ControllerAdvice
+class SerializationTimingAdvice implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+
+    private static final String PENDING = SerializationTimingAdvice.class.getName() + ".pending";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    SerializationTimingAdvice(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType)
+            || UserHalMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null && request instanceof ServletServerHttpRequest servletRequest) {
+            servletRequest.getServletRequest().setAttribute(PENDING,
+                new Pending(registry, Timer.start(registry), body != null ? body.getClass().getSimpleName() : "none"));
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PENDING) instanceof Pending pending) {
+            request.removeAttribute(PENDING);
+            pending.sample().stop(Timer.builder("http.server.serialization")
+                .description("Time spent writing response bodies")
+                .tag("type", pending.type())
+                .register(pending.registry()));
+        }
+    }
+
+    private record Pending(MeterRegistry registry, Timer.Sample sample, String type) {
+    }
+}
@@ -0,0 +1,67 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import spring.ai.example.spring_ai_demo.jdbc.StatementCounter;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request ran, tagged like
+ * {@code http.server.requests}, and flags requests above the threshold so N+1
+ * or extra-round-trip regressions show up without a profiler attached.
+ */
+class StatementCountFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    private final MeterRegistry registry;
+    private final int threshold;
+
+    StatementCountFilter(MeterRegistry registry, int threshold) {
+        this.registry = registry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            record(request, StatementCounter.stop());
+        }
+    }
+
+    private void record(HttpServletRequest request, int statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("jdbc.request.statements")
+            .description("SQL statements executed per HTTP request")
+            .baseUnit("statements")
+            .tag("method", request.getMethod())
+            .tag("uri", uri)
+            .serviceLevelObjectives(1, 2, 5, 10, 25)
+            .register(registry)
+            .record(statements);
+        if (statements > threshold) {
+            Counter.builder("jdbc.request.statements.excessive")
+                .description("Requests that executed more SQL statements than the threshold")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .increment();
+            log.warn("{} {} ran {} SQL statements (threshold {})", request.getMethod(), uri, statements, threshold);
+        }
+    }
+}
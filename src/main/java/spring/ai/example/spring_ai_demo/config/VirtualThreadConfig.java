@@ -0,0 +1,55 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import spring.ai.example.spring_ai_demo.jdbc.ConnectionBulkheadDataSource;
+
+/**
+ * Active only when {@code spring.threads.virtual.enabled=true} on Java 21+. Spring
+ * Boot then runs Tomcat requests, {@code @Async} methods and scheduled tasks on
+ * virtual threads; this adds the connection bulkhead those threads need.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // Declared as Ordered so it is registered ahead of unordered DataSource wrappers
+    // (MetricsConfig) and still sees the HikariDataSource
+    @Bean
+    static OrderedBeanPostProcessor connectionBulkheadPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OrderedBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                ConnectionBulkheadDataSource bulkhead = new ConnectionBulkheadDataSource(
+                    hikari, hikari.getMaximumPoolSize(), hikari.getConnectionTimeout());
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("jdbc.bulkhead.waiting", bulkhead, ConnectionBulkheadDataSource::getQueueLength)
+                        .description("Threads parked waiting for a connection permit")
+                        .register(registry);
+                    Gauge.builder("jdbc.bulkhead.available", bulkhead, ConnectionBulkheadDataSource::getAvailablePermits)
+                        .description("Connection permits currently free")
+                        .register(registry);
+                });
+                return bulkhead;
+            }
+        };
+    }
+
+    interface OrderedBeanPostProcessor extends BeanPostProcessor, Ordered {
+        @Override
+        default int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import spring.ai.example.spring_ai_demo.service.UserExportService;
+import spring.ai.example.spring_ai_demo.service.UserImportService;
+import spring.ai.example.spring_ai_demo.service.UserLookupService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Collection-level custom methods ({@code /api/v1/users:<verb>}). They live
+ * outside {@link UserController} because a class-level "/api/v1/users" mapping
+ * would combine ":bulk" into "/api/v1/users/:bulk".
+ */
+@RestController
+@RequestMapping("/api/v1")
+@Tag(name = "User Management", description = "APIs for managing users")
+public class UserBulkController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    // Seconds; an export slot frees up when a whole export has been read
+    private static final String EXPORT_RETRY_AFTER = "30";
+
+    public record BatchGetRequest(List<Long> ids) {
+    }
+
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserLookupService userLookupService;
+
+    public UserBulkController(UserImportService userImportService, UserExportService userExportService,
+                              UserLookupService userLookupService) {
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
+        this.userLookupService = userLookupService;
+    }
+
+    @Operation(summary = "Get users by ids",
+        description = "As GET /api/v1/users?ids=, for id lists too long for a URL")
+    @ApiResponse(responseCode = "200", description = "One result per distinct id, in request order")
+    @ApiResponse(responseCode = "400", description = "Missing, null or too many ids")
+    @PostMapping(value = "/users:batchGet", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<UserLookupService.Result>> batchGetUsers(@RequestBody BatchGetRequest request) {
+        if (request.ids() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(userLookupService.findAll(request.ids()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Bulk import users",
+        description = "Streams NDJSON or CSV (with a name,email,phoneNumber,status header) and returns one NDJSON result per record")
+    @ApiResponse(responseCode = "200", description = "Per-record results streamed as NDJSON")
+    @PostMapping(value = "/users:bulk",
+        consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                            InputStream body,
+                            HttpServletResponse response) throws IOException {
+        UserImportService.Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+            ? UserImportService.Format.NDJSON
+            : UserImportService.Format.CSV;
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userImportService.importUsers(body, format, response.getOutputStream());
+    }
+
+    @Operation(summary = "Export all users",
+        description = "Streams every user in id order as NDJSON (default) or CSV from one database cursor; "
+            + "gzip-compressed when the client's Accept-Encoding allows gzip")
+    @ApiResponse(responseCode = "200", description = "All users streamed")
+    @ApiResponse(responseCode = "503", description = "Too many exports running; retry after Retry-After seconds")
+    @GetMapping("/users:export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "NDJSON") UserExportService.Format format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!userExportService.tryReserve()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, EXPORT_RETRY_AFTER)
+                .build();
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(format == UserExportService.Format.CSV
+                ? MediaType.parseMediaType(TEXT_CSV_VALUE + ";charset=UTF-8")
+                : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(format == UserExportService.Format.CSV ? "users.csv" : "users.ndjson")
+                .build().toString())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> {
+            try {
+                if (gzip) {
+                    try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                        userExportService.exportUsers(format, compressed);
+                    }
+                } else {
+                    userExportService.exportUsers(format, out);
+                }
+            } finally {
+                userExportService.release();
+            }
+        });
+    }
+
+    /**
+     * Whether the Accept-Encoding header allows gzip: named with a non-zero
+     * q-value, or not named and covered by a non-zero {@code *}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        float wildcard = 0;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            float q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return q > 0;
+            }
+            if (coding.equals("*")) {
+                wildcard = q;
+            }
+        }
+        return wildcard > 0;
+    }
+}
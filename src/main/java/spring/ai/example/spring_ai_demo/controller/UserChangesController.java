@@ -0,0 +1,54 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import spring.ai.example.spring_ai_demo.changes.UserChangeFeed;
+
+/**
+ * Server-sent stream of user changes from the transactional outbox, for
+ * consumers that would otherwise poll the listing to find what changed.
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+@Tag(name = "User Management", description = "APIs for managing users")
+public class UserChangesController {
+
+    private final UserChangeFeed changeFeed;
+
+    public UserChangesController(UserChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Operation(summary = "Stream user changes",
+        description = "Sends each CREATED, UPDATED or DELETED change after `since` as an event whose id is its "
+            + "sequence number, then follows new changes. Without `since`, starts at the latest change. "
+            + "A reconnecting EventSource resumes from Last-Event-ID")
+    @ApiResponse(responseCode = "200", description = "Event stream")
+    @ApiResponse(responseCode = "410", description = "Changes after `since` are no longer kept; resynchronize first")
+    @ApiResponse(responseCode = "503", description = "Too many streams open")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long cursor = lastEventId != null ? lastEventId : since != null ? since : changeFeed.head();
+        if (!changeFeed.isRetained(cursor)) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return changeFeed.subscribe(cursor)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build());
+    }
+}
@@ -1,169 +1,394 @@
 package spring.ai.example.spring_ai_demo.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.validation.Validator;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import spring.ai.example.spring_ai_demo.cache.SingleFlight;
+import spring.ai.example.spring_ai_demo.cache.UserCache;
+import spring.ai.example.spring_ai_demo.dto.CountStrategy;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserCursor;
 import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.dto.UserFilter;
+import spring.ai.example.spring_ai_demo.dto.UserPatch;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
 import spring.ai.example.spring_ai_demo.model.User;
 import spring.ai.example.spring_ai_demo.repository.UserRepository;
+import spring.ai.example.spring_ai_demo.repository.UserRepositoryCustom;
+import spring.ai.example.spring_ai_demo.repository.UserSpecifications;
+import spring.ai.example.spring_ai_demo.service.UserCountService;
+import spring.ai.example.spring_ai_demo.service.UserLookupService;
 import org.springframework.http.HttpStatus;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springdoc.core.annotations.ParameterObject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/users")
 @Tag(name = "User Management", description = "APIs for managing users")
 public class UserController {
 
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    static final String TOTAL_COUNT_STRATEGY = "X-Total-Count-Strategy";
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final UserModelAssembler userAssembler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final UserCountService userCountService;
+    private final UserLookupService userLookupService;
+    private final SingleFlight singleFlight;
 
-    public UserController(UserRepository userRepository) {
+    public UserController(UserRepository userRepository, UserCache userCache,
+                          UserModelAssembler userAssembler, ApplicationEventPublisher eventPublisher,
+                          Validator validator, UserCountService userCountService,
+                          UserLookupService userLookupService, SingleFlight singleFlight) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.userAssembler = userAssembler;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.userCountService = userCountService;
+        this.userLookupService = userLookupService;
+        this.singleFlight = singleFlight;
     }
 
-    @Operation(summary = "Get all users")
+    @Operation(summary = "Get all users",
+        description = "Filters combine with AND. A name-only search is ordered by relevance; "
+            + "`match` selects CONTAINS (default), PREFIX or FUZZY. `count` selects how totalElements "
+            + "is computed (ESTIMATED by default without filters, EXACT with); the strategy used is "
+            + "returned in X-Total-Count-Strategy")
     @ApiResponse(responseCode = "200", description = "List of users retrieved")
+    @ApiResponse(responseCode = "304", description = "Page unchanged since the ETag in If-None-Match")
     @GetMapping
     public ResponseEntity<PagedModel<EntityModel<UserDTO>>> getAllUsers(
-            @RequestParam(required = false) String name,
+            @ParameterObject UserFilter filter,
+            @RequestParam(defaultValue = "CONTAINS") NameMatch match,
+            @RequestParam(required = false) CountStrategy count,
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest request) {
+
+        CountStrategy strategy = userCountService.resolve(count, filter);
+        // Identical listings in flight at once, such as the first page under a spike, share one read
+        Page<UserDTO> users = singleFlight.execute("listUsers", new ListingKey(filter, match, strategy, pageable),
+            () -> findPage(filter, match, strategy, pageable));
+
+        // Sets the ETag header, and a 304 without building or serializing the page if it matches
+        if (checkNotModified(request, UserETags.of(users, accept(request)))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .header(TOTAL_COUNT_STRATEGY, strategy.name())
+            .body(userAssembler.toPagedModel(users));
+    }
+
+    private record ListingKey(UserFilter filter, NameMatch match, CountStrategy strategy, Pageable pageable) {
+    }
+
+    private Page<UserDTO> findPage(UserFilter filter, NameMatch match, CountStrategy strategy, Pageable pageable) {
+        if (filter == null || filter.isEmpty()) {
+            return userRepository.findDtos(null, pageable,
+                userCountService.total(strategy, filter, match, userRepository::count));
+        }
+        if (filter.isNameOnly()) {
+            return userRepository.searchByName(filter.name(), match,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()),
+                userCountService.total(strategy, filter, match, () -> userRepository.countByName(filter.name(), match)));
+        }
+        Specification<User> spec = UserSpecifications.matching(filter, match);
+        return userRepository.findDtos(spec, pageable,
+            userCountService.total(strategy, filter, match, () -> userRepository.count(spec)));
+    }
+
+    @Operation(summary = "Get users by cursor",
+        description = "Keyset pagination: pass an empty `after` for the first page, then follow the `next` link")
+    @ApiResponse(responseCode = "200", description = "Window of users retrieved")
+    @ApiResponse(responseCode = "400", description = "Malformed cursor")
+    @GetMapping(params = {"after", "!ids"})
+    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> getUsersAfter(
+            @RequestParam(required = false) String after,
             @RequestParam(required = false) User.UserStatus status,
-            @PageableDefault(size = 20) Pageable pageable) {
-        
-        Page<User> users;
-        if (name != null) {
-            users = userRepository.findByNameContainingIgnoreCase(name, pageable);
-        } else if (status != null) {
-            users = userRepository.findByStatus(status, pageable);
+            @RequestParam(required = false) UserCursor.SortKey orderBy,
+            @RequestParam(defaultValue = "20") int size) {
+
+        UserCursor.SortKey key;
+        ScrollPosition position;
+        if (after == null || after.isBlank()) {
+            key = orderBy != null ? orderBy : UserCursor.SortKey.ID;
+            position = UserCursor.start();
         } else {
-            users = userRepository.findAll(pageable);
+            try {
+                UserCursor cursor = UserCursor.decode(after);
+                key = cursor.key();
+                position = cursor.toScrollPosition();
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
         }
 
-        Page<EntityModel<UserDTO>> userModels = users.map(user -> EntityModel.of(convertToDTO(user))
-            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                .getUserById(user.getId())).withSelfRel())
-            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                .updateUser(user.getId(), null)).withRel("update"))
-            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                .deleteUser(user.getId())).withRel("delete")));
+        Limit limit = Limit.of(Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE)));
+        Sort sort = UserCursor.sort(key);
+        Window<User> window = status != null
+            ? userRepository.findByStatus(status, position, limit, sort)
+            : userRepository.findBy(position, limit, sort);
+
+        CollectionModel<EntityModel<UserDTO>> resource = userAssembler.toCollectionModel(window.map(this::convertToDTO));
+        if (window.hasNext() && !window.isEmpty()) {
+            String next = UserCursor.after(key, window.getContent().get(window.size() - 1)).encode();
+            resource.add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
+                .getUsersAfter(next, status, null, limit.max())).withRel(IanaLinkRelations.NEXT).expand());
+        }
+        return ResponseEntity.ok(resource);
+    }
+
+    @Operation(summary = "Get users by ids",
+        description = "Up to " + UserLookupService.MAX_IDS + " comma-separated ids, read in one query. "
+            + "Returns one entry per distinct id, in request order, with status FOUND or NOT_FOUND")
+    @ApiResponse(responseCode = "200", description = "Lookup results")
+    @ApiResponse(responseCode = "400", description = "Too many ids, or combined with after")
+    @GetMapping(params = {"ids", "!after"})
+    public ResponseEntity<List<UserLookupService.Result>> getUsersByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(userLookupService.findAll(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        return ResponseEntity.ok(PagedModel.of(
-            userModels.getContent(),
-            new PagedModel.PageMetadata(
-                users.getSize(),
-                users.getNumber(),
-                users.getTotalElements(),
-                users.getTotalPages()
-            )
-        ));
+    // A cursor and an id list select users in incompatible ways; without this the request matches no handler
+    // but the unfiltered listing, which would silently ignore both
+    @Operation(hidden = true)
+    @GetMapping(params = {"ids", "after"})
+    public ResponseEntity<Void> rejectIdsWithCursor() {
+        return ResponseEntity.badRequest().build();
     }
 
     @Operation(summary = "Create a new user")
     @ApiResponse(responseCode = "201", description = "User created successfully")
     @ApiResponse(responseCode = "400", description = "Invalid input")
+    @ApiResponse(responseCode = "409", description = "Email already in use")
     @PostMapping
-    public ResponseEntity<EntityModel<UserDTO>> createUser(@Valid @RequestBody UserDTO userDTO) {
-        if (userRepository.existsByEmail(userDTO.getEmail())) {
+    public ResponseEntity<EntityModel<UserDTO>> createUser(
+            @Valid @RequestBody UserDTO userDTO,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // A cached email is certainly taken; anything else is settled by the insert itself
+        if (userCache.emailCached(userDTO.getEmail())) {
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
+        Optional<UserDTO> created = userRepository.insertIgnoringDuplicate(convertToEntity(userDTO));
+        if (created.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        UserDTO savedDTO = created.get();
+        userCache.put(savedDTO);
+        eventPublisher.publishEvent(UserChangedEvent.created(savedDTO.getId(), savedDTO.getEmail()));
 
-        User user = convertToEntity(userDTO);
-        User savedUser = userRepository.save(user);
-        
-        EntityModel<UserDTO> resource = EntityModel.of(convertToDTO(savedUser))
-            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                .getUserById(savedUser.getId())).withSelfRel())
-            .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                .getAllUsers(null, null, null)).withRel("all-users"));
+        EntityModel<UserDTO> resource = userAssembler.toModel(savedDTO)
+            .add(userAssembler.allUsersLink());
 
         return ResponseEntity
-            .created(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                .getUserById(savedUser.getId())).toUri())
+            .created(resource.getRequiredLink(IanaLinkRelations.SELF).toUri())
+            .eTag(UserETags.of(savedDTO, accept))
             .body(resource);
     }
 
     @Operation(summary = "Get user by ID")
     @ApiResponse(responseCode = "200", description = "User found")
+    @ApiResponse(responseCode = "304", description = "User unchanged since the ETag in If-None-Match")
     @ApiResponse(responseCode = "404", description = "User not found")
     @GetMapping("/{id}")
-    public ResponseEntity<EntityModel<UserDTO>> getUserById(@PathVariable Long id) {
-        return userRepository.findById(id)
-            .map(user -> EntityModel.of(convertToDTO(user))
-                .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                    .getUserById(id)).withSelfRel())
-                .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                    .getAllUsers(null, null, null)).withRel("all-users")))
-            .map(ResponseEntity::ok)
-            .orElse(ResponseEntity.notFound().build());
-    }
-
-    @Operation(summary = "Update user")
+    public ResponseEntity<EntityModel<UserDTO>> getUserById(@PathVariable Long id, WebRequest request) {
+        Optional<UserDTO> user = userLookupService.findById(id);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (checkNotModified(request, UserETags.of(user.get(), accept(request)))) {
+            return null;
+        }
+        return ResponseEntity.ok(userAssembler.toModel(user.get()).add(userAssembler.allUsersLink()));
+    }
+
+    @Operation(summary = "Update user", description = "Writes every non-null property")
     @ApiResponse(responseCode = "200", description = "User updated successfully")
     @ApiResponse(responseCode = "404", description = "User not found")
+    @ApiResponse(responseCode = "409", description = "Email already in use")
+    @ApiResponse(responseCode = "412", description = "If-Match does not match the current version")
     @PutMapping("/{id}")
     public ResponseEntity<EntityModel<UserDTO>> updateUser(
             @PathVariable Long id,
-            @Valid @RequestBody UserDTO userDTO) {
-        
-        return userRepository.findById(id)
-            .map(existingUser -> {
-                // Update only non-null fields
-                if (userDTO.getName() != null) {
-                    existingUser.setName(userDTO.getName());
-                }
-                if (userDTO.getEmail() != null) {
-                    existingUser.setEmail(userDTO.getEmail());
-                }
-                if (userDTO.getPhoneNumber() != null) {
-                    existingUser.setPhoneNumber(userDTO.getPhoneNumber());
-                }
-                if (userDTO.getStatus() != null) {
-                    existingUser.setStatus(userDTO.getStatus());
-                }
-                
-                User updatedUser = userRepository.save(existingUser);
-                EntityModel<UserDTO> resource = EntityModel.of(convertToDTO(updatedUser))
-                    .add(WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(UserController.class)
-                        .getUserById(updatedUser.getId())).withSelfRel());
-                
-                return ResponseEntity.ok(resource);
-            })
-            .orElse(ResponseEntity.notFound().build());
+            @Valid @RequestBody UserDTO userDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        return applyPatch(id, UserPatch.fromNonNull(userDTO), ifMatch, accept);
+    }
+
+    @Operation(summary = "Patch user",
+        description = "JSON Merge Patch (RFC 7396): members present are set, null members are cleared")
+    @ApiResponse(responseCode = "200", description = "User patched successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid patch document")
+    @ApiResponse(responseCode = "404", description = "User not found")
+    @ApiResponse(responseCode = "409", description = "Email already in use")
+    @ApiResponse(responseCode = "412", description = "If-Match does not match the current version")
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH_JSON)
+    public ResponseEntity<EntityModel<UserDTO>> patchUser(
+            @PathVariable Long id,
+            @RequestBody JsonNode document,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        UserPatch patch;
+        try {
+            patch = UserPatch.fromMergePatch(document);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (Map.Entry<UserPatch.Field, Object> change : patch.changes().entrySet()) {
+            if (!validator.validateValue(UserDTO.class, change.getKey().property(), change.getValue()).isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return applyPatch(id, patch, ifMatch, accept);
     }
 
     @Operation(summary = "Delete user")
     @ApiResponse(responseCode = "204", description = "User deleted successfully")
     @ApiResponse(responseCode = "404", description = "User not found")
+    @ApiResponse(responseCode = "412", description = "If-Match does not match the current version")
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteUser(@PathVariable Long id) {
-        return userRepository.findById(id)
-            .map(user -> {
-                userRepository.delete(user);
-                return ResponseEntity.noContent().build();
-            })
-            .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> deleteUser(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        Long expectedVersion;
+        try {
+            expectedVersion = UserETags.expectedVersion(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        Optional<String> email = userRepository.deleteReturningEmail(id, expectedVersion);
+        if (email.isEmpty()) {
+            return notFoundOrPreconditionFailed(id, expectedVersion);
+        }
+        eventPublisher.publishEvent(UserChangedEvent.deleted(id, email.get()));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * One {@code UPDATE ... RETURNING} statement; the If-Match version is part of
+     * its WHERE clause, so there is no read-then-write window.
+     */
+    private ResponseEntity<EntityModel<UserDTO>> applyPatch(Long id, UserPatch patch, String ifMatch,
+                                                          String accept) {
+        Long expectedVersion;
+        try {
+            expectedVersion = UserETags.expectedVersion(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+
+        UserDTO result;
+        if (patch.isEmpty()) {
+            // Nothing to write: answer from the current row without bumping its version
+            Optional<UserDTO> current = userRepository.findDtoById(id);
+            if (current.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (expectedVersion != null && !expectedVersion.equals(current.get().getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            result = current.get();
+        } else {
+            Optional<UserRepositoryCustom.PatchedUser> patched;
+            try {
+                patched = userRepository.patch(id, patch, expectedVersion);
+            } catch (DuplicateKeyException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            if (patched.isEmpty()) {
+                return notFoundOrPreconditionFailed(id, expectedVersion);
+            }
+            result = patched.get().user();
+            eventPublisher.publishEvent(
+                UserChangedEvent.updated(id, result.getEmail(), patched.get().previousEmail()));
+        }
+        return ResponseEntity.ok()
+            .eTag(UserETags.of(result, accept))
+            .body(userAssembler.toModel(result));
+    }
+
+    /**
+     * The tag depends on the negotiated representation, so caches must key on
+     * {@code Accept}; the header goes on before the check so a 304 carries it too.
+     */
+    private static boolean checkNotModified(WebRequest request, String etag) {
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return request.checkNotModified(etag);
+    }
+
+    private static String accept(WebRequest request) {
+        String[] values = request.getHeaderValues(HttpHeaders.ACCEPT);
+        return values != null ? String.join(",", values) : null;
+    }
+
+    /**
+     * A conditional write that matched no row: the extra lookup is only paid on
+     * this failure path, and only when there was a version to fail on.
+     */
+    private <T> ResponseEntity<T> notFoundOrPreconditionFailed(Long id, Long expectedVersion) {
+        if (expectedVersion != null && userRepository.existsById(id)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        return ResponseEntity.notFound().build();
     }
 
-    // Helper methods for DTO conversion
-    private UserDTO convertToDTO(User user) {
+    // Helper methods for DTO conversion (package-private so UserControllerBenchmark can measure them)
+    UserDTO convertToDTO(User user) {
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
         dto.setName(user.getName());
         dto.setEmail(user.getEmail());
         dto.setPhoneNumber(user.getPhoneNumber());
         dto.setStatus(user.getStatus());
+        dto.setVersion(user.getVersion());
         return dto;
     }
 
-    private User convertToEntity(UserDTO dto) {
+    User convertToEntity(UserDTO dto) {
         User user = new User();
         user.setName(dto.getName());
         user.setEmail(dto.getEmail());
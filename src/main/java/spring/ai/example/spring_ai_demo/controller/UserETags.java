@@ -0,0 +1,106 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.MimeTypeUtils;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Strong entity tags for user resources, derived from the {@code @Version}
+ * column so they can be computed without serializing the body.
+ * <p>
+ * {@link UserHalMessageConverter} writes the same document as JSON or CBOR,
+ * depending on {@code Accept}. Those are different bytes, so the CBOR tag
+ * carries a {@value #CBOR_SUFFIX} suffix and responses vary by {@code Accept}.
+ */
+final class UserETags {
+
+    static final String CBOR_SUFFIX = "-cbor";
+
+    private static final List<MediaType> JSON_TYPES = List.of(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON);
+
+    private UserETags() {
+    }
+
+    static String of(UserDTO user, String accept) {
+        return of(user.getVersion(), accept);
+    }
+
+    static String of(Long version, String accept) {
+        return tag(String.valueOf(version), accept);
+    }
+
+    /**
+     * Changes whenever the page's membership, order, any member's version or the
+     * total count changes.
+     */
+    static String of(Page<UserDTO> page, String accept) {
+        StringBuilder key = new StringBuilder()
+            .append(page.getNumber()).append('/')
+            .append(page.getSize()).append('/')
+            .append(page.getTotalElements());
+        for (UserDTO user : page) {
+            key.append(';').append(user.getId()).append(':').append(user.getVersion());
+        }
+        return tag(DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)), accept);
+    }
+
+    private static String tag(String value, String accept) {
+        return "\"" + value + (isCbor(accept) ? CBOR_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Whether content negotiation picks CBOR for this {@code Accept} header: the
+     * types are taken in the order Spring MVC ranks them, and the first one a
+     * JSON type or CBOR is compatible with decides, with JSON winning wildcards.
+     */
+    static boolean isCbor(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MimeTypeUtils.sortBySpecificity(types);
+        for (MediaType type : types) {
+            if (JSON_TYPES.stream().anyMatch(type::isCompatibleWith)) {
+                return false;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The version an {@code If-Match} header requires, or {@code null} if the
+     * header is absent or {@code *}. Only a single strong tag is supported; the
+     * JSON and CBOR tags of a version both match it.
+     *
+     * @throws IllegalArgumentException if the header can never match a user's tag
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("Not a single strong entity tag: " + ifMatch);
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        if (value.endsWith(CBOR_SUFFIX)) {
+            value = value.substring(0, value.length() - CBOR_SUFFIX.length());
+        }
+        return Long.valueOf(value);
+    }
+}
@@ -0,0 +1,42 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import spring.ai.example.spring_ai_demo.enrichment.UserEnricher;
+import spring.ai.example.spring_ai_demo.enrichment.UserEnrichment;
+import spring.ai.example.spring_ai_demo.enrichment.UserEnrichmentStore;
+
+/**
+ * Model-derived profile data for a user, written in the background by
+ * {@link UserEnricher}. Only registered when {@code app.users.enrichment.enabled=true}.
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+@ConditionalOnProperty(name = "app.users.enrichment.enabled", havingValue = "true")
+@Tag(name = "User Management", description = "APIs for managing users")
+public class UserEnrichmentController {
+
+    private final UserEnrichmentStore enrichmentStore;
+
+    public UserEnrichmentController(UserEnrichmentStore enrichmentStore) {
+        this.enrichmentStore = enrichmentStore;
+    }
+
+    @Operation(summary = "Get a user's enrichment",
+        description = "Category and normalized name from the chat model; a created or changed user takes a moment to appear")
+    @ApiResponse(responseCode = "200", description = "Enrichment found")
+    @ApiResponse(responseCode = "404", description = "User not found or not enriched yet")
+    @GetMapping("/{id}/enrichment")
+    public ResponseEntity<UserEnrichment> getEnrichment(@PathVariable Long id) {
+        return enrichmentStore.findByUserId(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,353 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.hateoas.Links;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link UserDTO}, {@code EntityModel<UserDTO>} and pages or collections
+ * of them with the streaming generator, ahead of the Jackson converters: no bean
+ * introspection or HAL serializer lookups per response. Field names, statuses and
+ * the usual link relations are {@link SerializedString}s, encoded once, and the
+ * generator writes straight to the response through the factory's recycled
+ * buffers. The JSON is what Jackson2HalModule renders for these types;
+ * {@code Accept: application/cbor} gets the same document as CBOR, with objects
+ * and arrays written at their known sizes.
+ */
+@Component
+@ConditionalOnProperty(name = "app.users.hal-converter.enabled", havingValue = "true", matchIfMissing = true)
+public class UserHalMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private static final List<MediaType> USER_MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString PHONE_NUMBER = new SerializedString("phoneNumber");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString EMBEDDED = new SerializedString("_embedded");
+    private static final SerializedString LINKS = new SerializedString("_links");
+    private static final SerializedString PAGE = new SerializedString("page");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+    private static final SerializedString NUMBER = new SerializedString("number");
+    private static final SerializedString HREF = new SerializedString("href");
+    private static final SerializedString HREFLANG = new SerializedString("hreflang");
+    private static final SerializedString MEDIA = new SerializedString("media");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString DEPRECATION = new SerializedString("deprecation");
+    private static final SerializedString PROFILE = new SerializedString("profile");
+    private static final SerializedString LINK_NAME = new SerializedString("name");
+    private static final SerializedString TEMPLATED = new SerializedString("templated");
+
+    private static final Map<User.UserStatus, SerializedString> STATUSES = new EnumMap<>(User.UserStatus.class);
+    private static final Map<String, SerializedString> RELS = Map.of(
+        IanaLinkRelations.SELF.value(), new SerializedString(IanaLinkRelations.SELF.value()),
+        IanaLinkRelations.NEXT.value(), new SerializedString(IanaLinkRelations.NEXT.value()),
+        UserModelAssembler.UPDATE_REL, new SerializedString(UserModelAssembler.UPDATE_REL),
+        UserModelAssembler.DELETE_REL, new SerializedString(UserModelAssembler.DELETE_REL),
+        UserModelAssembler.ALL_USERS_REL, new SerializedString(UserModelAssembler.ALL_USERS_REL));
+
+    static {
+        for (User.UserStatus status : User.UserStatus.values()) {
+            STATUSES.put(status, new SerializedString(status.name()));
+        }
+    }
+
+    // The response stream belongs to the container, so closing the generator must only flush it
+    private final JsonFactory json = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+    private final JsonFactory cbor = CBORFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+    private final SerializedString embeddedRel;
+
+    public UserHalMessageConverter(LinkRelationProvider relProvider) {
+        super(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+        this.embeddedRel = new SerializedString(relProvider.getCollectionResourceRelFor(UserDTO.class).value());
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == UserDTO.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    /**
+     * Models are only taken when the declared type says they hold users; a
+     * {@code ResponseEntity<?>} or any other model goes to the Jackson converters.
+     */
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType)
+            && writes(type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz), false);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return RepresentationModel.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : USER_MEDIA_TYPES;
+    }
+
+    @Override
+    protected MediaType getDefaultContentType(Object body) {
+        return body instanceof RepresentationModel<?> ? MediaTypes.HAL_JSON : MediaType.APPLICATION_JSON;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Users are read by the Jackson converters", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Users are read by the Jackson converters", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        JsonFactory factory = contentType != null && MediaType.APPLICATION_CBOR.isCompatibleWith(contentType) ? cbor : json;
+        try (JsonGenerator generator = factory.createGenerator(outputMessage.getBody())) {
+            if (body instanceof UserDTO user) {
+                writeUser(generator, user, null);
+            } else if (body instanceof EntityModel<?> model) {
+                writeUser(generator, (UserDTO) model.getContent(), model.getLinks());
+            } else {
+                writeCollection(generator, (CollectionModel<?>) body);
+            }
+        }
+    }
+
+    private static boolean writes(ResolvableType type, boolean declared) {
+        Class<?> raw = type.resolve();
+        if (raw == UserDTO.class) {
+            return true;
+        }
+        ResolvableType model = raw == CollectionModel.class || raw == PagedModel.class
+            ? type.as(CollectionModel.class).getGeneric(0)
+            : type;
+        if (model.resolve() != EntityModel.class) {
+            return false;
+        }
+        Class<?> content = model.getGeneric(0).resolve();
+        if (content != null || declared) {
+            return content == UserDTO.class;
+        }
+        // Spring 6.1.1 flattens nested generics when resolving the body type, so a
+        // PagedModel<EntityModel<UserDTO>> arrives as PagedModel<EntityModel>; the
+        // handler method still declares them
+        return writes(handlerBodyType(), true);
+    }
+
+    private static ResolvableType handlerBodyType() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        Object handler = request != null
+            ? request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+            : null;
+        if (!(handler instanceof HandlerMethod method)) {
+            return ResolvableType.NONE;
+        }
+        ResolvableType returnType = ResolvableType.forMethodReturnType(method.getMethod());
+        return HttpEntity.class.isAssignableFrom(returnType.toClass())
+            ? returnType.as(HttpEntity.class).getGeneric(0)
+            : returnType;
+    }
+
+    private void writeCollection(JsonGenerator generator, CollectionModel<?> model) throws IOException {
+        Collection<?> content = model.getContent();
+        PagedModel.PageMetadata page = model instanceof PagedModel<?> paged ? paged.getMetadata() : null;
+        // Like Jackson2HalModule, an empty collection has no _embedded at all
+        generator.writeStartObject(model, (content.isEmpty() ? 0 : 1) + (model.hasLinks() ? 1 : 0) + (page != null ? 1 : 0));
+        if (!content.isEmpty()) {
+            generator.writeFieldName(EMBEDDED);
+            generator.writeStartObject(content, 1);
+            generator.writeFieldName(embeddedRel);
+            generator.writeStartArray(content, content.size());
+            for (Object item : content) {
+                EntityModel<?> user = (EntityModel<?>) item;
+                writeUser(generator, (UserDTO) user.getContent(), user.getLinks());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        if (model.hasLinks()) {
+            writeLinks(generator, model.getLinks());
+        }
+        if (page != null) {
+            generator.writeFieldName(PAGE);
+            generator.writeStartObject(page, 4);
+            generator.writeFieldName(SIZE);
+            generator.writeNumber(page.getSize());
+            generator.writeFieldName(TOTAL_ELEMENTS);
+            generator.writeNumber(page.getTotalElements());
+            generator.writeFieldName(TOTAL_PAGES);
+            generator.writeNumber(page.getTotalPages());
+            generator.writeFieldName(NUMBER);
+            generator.writeNumber(page.getNumber());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    // Same properties, in the same order, as Jackson writes for UserDTO; version goes out as the ETag
+    private void writeUser(JsonGenerator generator, UserDTO user, Links links) throws IOException {
+        boolean hasLinks = links != null && !links.isEmpty();
+        generator.writeStartObject(user, hasLinks ? 6 : 5);
+        generator.writeFieldName(ID);
+        if (user.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(user.getId());
+        }
+        generator.writeFieldName(NAME);
+        generator.writeString(user.getName());
+        generator.writeFieldName(EMAIL);
+        generator.writeString(user.getEmail());
+        generator.writeFieldName(PHONE_NUMBER);
+        generator.writeString(user.getPhoneNumber());
+        generator.writeFieldName(STATUS);
+        if (user.getStatus() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(STATUSES.get(user.getStatus()));
+        }
+        if (hasLinks) {
+            writeLinks(generator, links);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * HAL links: one object per relation, or an array of them when a relation
+     * has several links.
+     */
+    private static void writeLinks(JsonGenerator generator, Links links) throws IOException {
+        List<Link> all = links.toList();
+        int rels = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (firstOfRel(all, i)) {
+                rels++;
+            }
+        }
+        generator.writeFieldName(LINKS);
+        generator.writeStartObject(links, rels);
+        for (int i = 0; i < all.size(); i++) {
+            if (!firstOfRel(all, i)) {
+                continue;
+            }
+            LinkRelation rel = all.get(i).getRel();
+            SerializableString name = RELS.get(rel.value());
+            if (name != null) {
+                generator.writeFieldName(name);
+            } else {
+                generator.writeFieldName(rel.value());
+            }
+            int count = 0;
+            for (int j = i; j < all.size(); j++) {
+                if (all.get(j).hasRel(rel)) {
+                    count++;
+                }
+            }
+            if (count == 1) {
+                writeLink(generator, all.get(i));
+                continue;
+            }
+            generator.writeStartArray(links, count);
+            for (int j = i; j < all.size(); j++) {
+                if (all.get(j).hasRel(rel)) {
+                    writeLink(generator, all.get(j));
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private static boolean firstOfRel(List<Link> links, int index) {
+        LinkRelation rel = links.get(index).getRel();
+        for (int i = 0; i < index; i++) {
+            if (links.get(i).hasRel(rel)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeLink(JsonGenerator generator, Link link) throws IOException {
+        int fields = 1 + (link.isTemplated() ? 1 : 0) + present(link.getHreflang()) + present(link.getMedia())
+            + present(link.getTitle()) + present(link.getType()) + present(link.getDeprecation())
+            + present(link.getProfile()) + present(link.getName());
+        generator.writeStartObject(link, fields);
+        generator.writeFieldName(HREF);
+        generator.writeString(link.getHref());
+        if (fields > 1) {
+            writeAttribute(generator, HREFLANG, link.getHreflang());
+            writeAttribute(generator, MEDIA, link.getMedia());
+            writeAttribute(generator, TITLE, link.getTitle());
+            writeAttribute(generator, TYPE, link.getType());
+            writeAttribute(generator, DEPRECATION, link.getDeprecation());
+            writeAttribute(generator, PROFILE, link.getProfile());
+            writeAttribute(generator, LINK_NAME, link.getName());
+            if (link.isTemplated()) {
+                generator.writeFieldName(TEMPLATED);
+                generator.writeBoolean(true);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static int present(String value) {
+        return value != null && !value.isEmpty() ? 1 : 0;
+    }
+
+    private static void writeAttribute(JsonGenerator generator, SerializableString name, String value)
+            throws IOException {
+        if (present(value) == 1) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds user representations without {@code methodOn} proxies. The collection
+ * URI of {@link UserController} is resolved through {@link WebMvcLinkBuilder}
+ * once per base URI (scheme, host, port and context path, after any forwarded
+ * headers are applied), then item links are expanded by appending the id.
+ */
+@Component
+public class UserModelAssembler implements RepresentationModelAssembler<UserDTO, EntityModel<UserDTO>> {
+
+    static final String UPDATE_REL = "update";
+    static final String DELETE_REL = "delete";
+    static final String ALL_USERS_REL = "all-users";
+
+    // Base URIs come from request headers, so keep the cache from growing without bound
+    private static final int MAX_BASE_URIS = 64;
+    private static final String HREF_ATTRIBUTE = UserModelAssembler.class.getName() + ".collectionHref";
+
+    private final Map<String, String> collectionHrefs = new ConcurrentHashMap<>();
+
+    @Override
+    public EntityModel<UserDTO> toModel(UserDTO user) {
+        return toModel(user, collectionHref());
+    }
+
+    @Override
+    public CollectionModel<EntityModel<UserDTO>> toCollectionModel(Iterable<? extends UserDTO> users) {
+        return CollectionModel.of(toModels(users));
+    }
+
+    public PagedModel<EntityModel<UserDTO>> toPagedModel(Page<UserDTO> page) {
+        return PagedModel.of(toModels(page), new PagedModel.PageMetadata(
+            page.getSize(),
+            page.getNumber(),
+            page.getTotalElements(),
+            page.getTotalPages()));
+    }
+
+    public Link allUsersLink() {
+        return Link.of(collectionHref(), ALL_USERS_REL);
+    }
+
+    private List<EntityModel<UserDTO>> toModels(Iterable<? extends UserDTO> users) {
+        String collectionHref = collectionHref();
+        List<EntityModel<UserDTO>> models = new ArrayList<>();
+        for (UserDTO user : users) {
+            models.add(toModel(user, collectionHref));
+        }
+        return models;
+    }
+
+    private static EntityModel<UserDTO> toModel(UserDTO user, String collectionHref) {
+        String itemHref = collectionHref + "/" + user.getId();
+        return EntityModel.of(user,
+            Link.of(itemHref, IanaLinkRelations.SELF),
+            Link.of(itemHref, UPDATE_REL),
+            Link.of(itemHref, DELETE_REL));
+    }
+
+    private String collectionHref() {
+        RequestAttributes request = RequestContextHolder.currentRequestAttributes();
+        String href = (String) request.getAttribute(HREF_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (href == null) {
+            String baseUri = ServletUriComponentsBuilder.fromCurrentServletMapping().toUriString();
+            if (collectionHrefs.size() >= MAX_BASE_URIS) {
+                collectionHrefs.clear();
+            }
+            href = collectionHrefs.computeIfAbsent(baseUri,
+                key -> WebMvcLinkBuilder.linkTo(UserController.class).toUri().toString());
+            request.setAttribute(HREF_ATTRIBUTE, href, RequestAttributes.SCOPE_REQUEST);
+        }
+        return href;
+    }
+}
@@ -0,0 +1,60 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import spring.ai.example.spring_ai_demo.search.UserSemanticIndex;
+
+import java.util.List;
+
+/**
+ * Semantic search over users ({@code /api/v1/users:similar}), served from the
+ * in-process {@link UserSemanticIndex}. Mapped like {@link UserBulkController}
+ * and only registered when {@code app.users.semantic-search.enabled=true}.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@ConditionalOnProperty(name = "app.users.semantic-search.enabled", havingValue = "true")
+@Tag(name = "User Management", description = "APIs for managing users")
+public class UserSimilarityController {
+
+    private static final int MAX_RESULTS = 100;
+
+    private final UserSemanticIndex semanticIndex;
+
+    public UserSimilarityController(UserSemanticIndex semanticIndex) {
+        this.semanticIndex = semanticIndex;
+    }
+
+    @Operation(summary = "Find users similar to a text",
+        description = "Nearest neighbours by embedding similarity; recently changed users may take a moment to appear")
+    @ApiResponse(responseCode = "200", description = "Matches ordered by score")
+    @GetMapping(value = "/users:similar", params = "q")
+    public List<UserSemanticIndex.Match> similarToText(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int k) {
+        return semanticIndex.search(q, clamp(k));
+    }
+
+    @Operation(summary = "Find users similar to another user")
+    @ApiResponse(responseCode = "200", description = "Matches ordered by score, excluding the user itself")
+    @ApiResponse(responseCode = "404", description = "User not indexed")
+    @GetMapping(value = "/users:similar", params = "to")
+    public ResponseEntity<List<UserSemanticIndex.Match>> similarToUser(
+            @RequestParam Long to,
+            @RequestParam(defaultValue = "10") int k) {
+        return semanticIndex.similarTo(to, clamp(k))
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static int clamp(int k) {
+        return Math.max(1, Math.min(k, MAX_RESULTS));
+    }
+}
@@ -0,0 +1,13 @@
+package spring.ai.example.spring_ai_demo.dto;
+
+/**
+ * How the user listing fills in {@code page.totalElements}.
+ */
+public enum CountStrategy {
+    /** A {@code count(*)} per page; always right, and the cost of a scan. */
+    EXACT,
+    /** An exact count kept per filter combination until the TTL passes or a user changes. */
+    CACHED,
+    /** The planner's row estimate, for the unfiltered listing only; no scan at all. */
+    ESTIMATED
+}
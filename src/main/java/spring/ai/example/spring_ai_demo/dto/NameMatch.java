@@ -0,0 +1,13 @@
+package spring.ai.example.spring_ai_demo.dto;
+
+/**
+ * How the {@code name} filter of the user listing is matched.
+ */
+public enum NameMatch {
+    /** Case-insensitive substring, ranked by trigram similarity. */
+    CONTAINS,
+    /** Case-insensitive prefix, in name order. */
+    PREFIX,
+    /** Typo-tolerant word similarity, ranked by closeness. */
+    FUZZY
+}
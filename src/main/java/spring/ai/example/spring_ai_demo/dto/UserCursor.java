@@ -0,0 +1,74 @@
+package spring.ai.example.spring_ai_demo.dto;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Opaque keyset cursor for user listings. It carries the sort key and the
+ * key values of the last row a client has seen, so the next page can be
+ * fetched with a seek predicate instead of an OFFSET.
+ */
+public record UserCursor(SortKey key, LocalDateTime createdAt, long id) {
+
+    public enum SortKey {
+        ID, CREATED_AT
+    }
+
+    private static final String SEPARATOR = "|";
+
+    public static UserCursor after(SortKey key, User last) {
+        return new UserCursor(key, key == SortKey.CREATED_AT ? last.getCreatedAt() : null, last.getId());
+    }
+
+    public static Sort sort(SortKey key) {
+        return key == SortKey.CREATED_AT
+            ? Sort.by("createdAt", "id")
+            : Sort.by("id");
+    }
+
+    public static ScrollPosition start() {
+        return ScrollPosition.keyset();
+    }
+
+    public KeysetScrollPosition toScrollPosition() {
+        return key == SortKey.CREATED_AT
+            ? ScrollPosition.forward(Map.of("createdAt", createdAt, "id", id))
+            : ScrollPosition.forward(Map.of("id", id));
+    }
+
+    public String encode() {
+        String raw = key == SortKey.CREATED_AT
+            ? key.name() + SEPARATOR + createdAt + SEPARATOR + id
+            : key.name() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static UserCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            SortKey key = SortKey.valueOf(parts[0]);
+            if (key == SortKey.CREATED_AT && parts.length == 3) {
+                return new UserCursor(key, LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+            }
+            if (key == SortKey.ID && parts.length == 2) {
+                return new UserCursor(key, null, Long.parseLong(parts[1]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+        throw new IllegalArgumentException("Malformed cursor: " + token);
+    }
+}
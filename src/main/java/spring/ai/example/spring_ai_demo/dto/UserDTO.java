@@ -1,5 +1,6 @@
 package spring.ai.example.spring_ai_demo.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import spring.ai.example.spring_ai_demo.model.User;
 
@@ -19,6 +20,27 @@ public class UserDTO {
     
     private User.UserStatus status;
 
+    // Sent as the ETag header rather than in the body
+    @JsonIgnore
+    private Long version;
+
+    public UserDTO() {
+    }
+
+    public UserDTO(Long id, String name, String email, String phoneNumber, User.UserStatus status) {
+        this(id, name, email, phoneNumber, status, null);
+    }
+
+    // Used by JPQL constructor expressions and the JDBC row mappers in UserRepositoryCustomImpl
+    public UserDTO(Long id, String name, String email, String phoneNumber, User.UserStatus status, Long version) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.status = status;
+        this.version = version;
+    }
+
     public User.UserStatus getStatus() {
         return status;
     }
@@ -27,6 +49,14 @@ public class UserDTO {
         this.status = status;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
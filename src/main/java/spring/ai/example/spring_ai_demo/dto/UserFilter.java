@@ -0,0 +1,42 @@
+package spring.ai.example.spring_ai_demo.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional criteria for the user listing, bound from query parameters. Any
+ * combination may be set; unset criteria do not restrict the result.
+ * Time ranges are inclusive of the lower bound and exclusive of the upper one.
+ */
+public record UserFilter(
+        String name,
+        User.UserStatus status,
+        String emailDomain,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedAfter,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedBefore) {
+
+    public static UserFilter none() {
+        return new UserFilter(null, null, null, null, null, null, null);
+    }
+
+    public boolean isEmpty() {
+        return name == null && !hasNonNameCriteria();
+    }
+
+    /**
+     * True when only {@code name} is set, which is served by the ranked name search.
+     */
+    public boolean isNameOnly() {
+        return name != null && !hasNonNameCriteria();
+    }
+
+    private boolean hasNonNameCriteria() {
+        return status != null || emailDomain != null
+            || createdAfter != null || createdBefore != null
+            || updatedAfter != null || updatedBefore != null;
+    }
+}
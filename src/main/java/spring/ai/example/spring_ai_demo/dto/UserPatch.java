@@ -0,0 +1,108 @@
+package spring.ai.example.spring_ai_demo.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The columns a partial update writes, in JSON Merge Patch (RFC 7396) terms:
+ * a member that is present sets the column, a {@code null} member clears it,
+ * and an absent member leaves it alone. Values are type-checked here; the
+ * {@link UserDTO} constraints are left to the caller.
+ */
+public record UserPatch(Map<Field, Object> changes) {
+
+    public enum Field {
+        NAME("name", "name"),
+        EMAIL("email", "email"),
+        PHONE_NUMBER("phoneNumber", "phone_number"),
+        STATUS("status", "status");
+
+        private final String property;
+        private final String column;
+
+        Field(String property, String column) {
+            this.property = property;
+            this.column = column;
+        }
+
+        public String property() {
+            return property;
+        }
+
+        public String column() {
+            return column;
+        }
+    }
+
+    public UserPatch {
+        changes = Collections.unmodifiableMap(new EnumMap<>(changes));
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the document is not an object, names a
+     *         member that cannot be patched, or has a value of the wrong type
+     */
+    public static UserPatch fromMergePatch(JsonNode document) {
+        if (document == null || !document.isObject()) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+        Map<Field, Object> changes = new EnumMap<>(Field.class);
+        Iterator<Map.Entry<String, JsonNode>> members = document.fields();
+        while (members.hasNext()) {
+            Map.Entry<String, JsonNode> member = members.next();
+            Field field = field(member.getKey());
+            JsonNode value = member.getValue();
+            if (value.isNull()) {
+                if (field == Field.STATUS) {
+                    throw new IllegalArgumentException("status cannot be removed");
+                }
+                changes.put(field, null);
+            } else if (!value.isTextual()) {
+                throw new IllegalArgumentException(member.getKey() + " must be a string");
+            } else if (field == Field.STATUS) {
+                changes.put(field, User.UserStatus.valueOf(value.textValue()));
+            } else {
+                changes.put(field, value.textValue());
+            }
+        }
+        return new UserPatch(changes);
+    }
+
+    /**
+     * The PUT semantics of {@code /api/v1/users/{id}}: every non-null property is written.
+     */
+    public static UserPatch fromNonNull(UserDTO user) {
+        Map<Field, Object> changes = new EnumMap<>(Field.class);
+        if (user.getName() != null) {
+            changes.put(Field.NAME, user.getName());
+        }
+        if (user.getEmail() != null) {
+            changes.put(Field.EMAIL, user.getEmail());
+        }
+        if (user.getPhoneNumber() != null) {
+            changes.put(Field.PHONE_NUMBER, user.getPhoneNumber());
+        }
+        if (user.getStatus() != null) {
+            changes.put(Field.STATUS, user.getStatus());
+        }
+        return new UserPatch(changes);
+    }
+
+    private static Field field(String property) {
+        for (Field field : Field.values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown or read-only member: " + property);
+    }
+}
@@ -0,0 +1,303 @@
+package spring.ai.example.spring_ai_demo.enrichment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Classifies users and normalizes their names through a {@link ChatClient},
+ * after they are created or updated. The request path only offers the id to a
+ * bounded queue, and drops it if the queue is full. A background thread takes
+ * up to {@code batch-size} ids at a time, waiting up to {@code linger} for a
+ * batch to fill, and sends all of them in one prompt.
+ * <p>
+ * A user whose name and email hash to what it was last enriched from is not
+ * sent again; nor is content already classified for another user recently.
+ * Model calls are paced to {@code calls-per-minute} and abandoned after
+ * {@code timeout}, with the batch retried after a growing delay.
+ */
+@Component
+@ConditionalOnProperty(name = "app.users.enrichment.enabled", havingValue = "true")
+public class UserEnricher {
+
+    // Only what the model is shown; no braces, which the prompt template would take for placeholders
+    static final String SYSTEM_PROMPT = """
+        You enrich records in a user directory. Each line of the user message is one user: \
+        id, name and email, separated by tabs. For every line return the id; the name with \
+        conventional capitalization and spacing, for example "jOHN   smith" becomes "John Smith"; \
+        and a category: PERSON for an individual, BUSINESS for a company, team or shared mailbox, \
+        TEST for an obviously fake or test account, UNKNOWN if you cannot tell. \
+        Return exactly one entry per line.""";
+
+    // What the model returns per user
+    record Classification(Long id, String normalizedName, UserEnrichment.Category category) {
+    }
+
+    private static final ParameterizedTypeReference<List<Classification>> CLASSIFICATIONS =
+        new ParameterizedTypeReference<>() {
+        };
+
+    private static final Logger log = LoggerFactory.getLogger(UserEnricher.class);
+
+    private static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final UserRepository userRepository;
+    private final UserEnrichmentStore store;
+    private final ChatClient chatClient;
+    private final int batchSize;
+    private final Duration linger;
+    private final long callIntervalNanos;
+    private final Duration timeout;
+
+    private final BlockingQueue<Long> queue;
+    // Content hash to result, so identical content is classified once
+    private final Cache<String, Classification> results;
+    private final Counter dropped;
+    private final Timer calls;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-enricher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Separate from the worker so a call that ignores interruption cannot hold up the next batch
+    private final ExecutorService callers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "user-enricher-call");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long nextCallAt = System.nanoTime();
+
+    public UserEnricher(UserRepository userRepository, UserEnrichmentStore store, ChatClient.Builder chatClient,
+                        ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${app.users.enrichment.queue-capacity:10000}") int queueCapacity,
+                        @Value("${app.users.enrichment.batch-size:20}") int batchSize,
+                        @Value("${app.users.enrichment.linger:200ms}") Duration linger,
+                        @Value("${app.users.enrichment.calls-per-minute:60}") int callsPerMinute,
+                        @Value("${app.users.enrichment.timeout:30s}") Duration timeout,
+                        @Value("${app.users.enrichment.cache-size:10000}") long cacheSize) {
+        this.userRepository = userRepository;
+        this.store = store;
+        this.chatClient = chatClient.defaultSystem(SYSTEM_PROMPT).build();
+        this.batchSize = batchSize;
+        this.linger = linger;
+        this.callIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, callsPerMinute);
+        this.timeout = timeout;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.results = Caffeine.newBuilder().maximumSize(cacheSize).build();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("user.enrichment.queue", queue, BlockingQueue::size)
+            .description("Users waiting to be enriched")
+            .register(registry);
+        this.dropped = Counter.builder("user.enrichment.dropped")
+            .description("Users not enriched because the queue was full")
+            .register(registry);
+        this.calls = Timer.builder("user.enrichment.calls")
+            .description("Chat model calls, one per batch")
+            .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.execute(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() != UserChangedEvent.Type.DELETED && !queue.offer(event.id())) {
+            // The next change to the user queues it again
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        Duration delay = Duration.ZERO;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Long> batch = nextBatch();
+                try {
+                    enrich(batch);
+                    delay = Duration.ZERO;
+                } catch (RuntimeException e) {
+                    batch.forEach(queue::offer);
+                    delay = delay.isZero() ? MIN_RETRY_DELAY
+                        : delay.multipliedBy(2).compareTo(MAX_RETRY_DELAY) < 0 ? delay.multipliedBy(2) : MAX_RETRY_DELAY;
+                    log.warn("User enrichment failed, {} users pending, retrying in {}: {}",
+                        queue.size(), delay, e.toString());
+                    Thread.sleep(delay.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Long> nextBatch() throws InterruptedException {
+        Set<Long> batch = new LinkedHashSet<>();
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + linger.toNanos();
+        while (batch.size() < batchSize) {
+            Long id = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (id == null) {
+                break;
+            }
+            batch.add(id);
+        }
+        return List.copyOf(batch);
+    }
+
+    /**
+     * Enriches everything queued, {@code batchSize} users per model call,
+     * without waiting for batches to fill.
+     */
+    void flush() throws InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        queue.drainTo(ids);
+        List<Long> distinct = List.copyOf(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            enrich(distinct.subList(from, Math.min(distinct.size(), from + batchSize)));
+        }
+    }
+
+    private void enrich(List<Long> ids) throws InterruptedException {
+        List<UserDTO> users = userRepository.findDtosByIds(ids);
+        Map<Long, String> enrichedFrom = store.findContentHashes(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<UserEnrichment> enrichments = new ArrayList<>();
+        List<UserDTO> unknown = new ArrayList<>();
+        for (UserDTO user : users) {
+            String hash = contentHash(user);
+            if (hash.equals(enrichedFrom.get(user.getId()))) {
+                continue;
+            }
+            Classification known = results.getIfPresent(hash);
+            if (known != null) {
+                enrichments.add(toEnrichment(user, hash, known, now));
+            } else {
+                unknown.add(user);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            Map<Long, Classification> classified = classify(unknown);
+            for (UserDTO user : unknown) {
+                Classification classification = classified.get(user.getId());
+                // A user the model skipped is tried again on its next change
+                if (classification != null && classification.category() != null) {
+                    String hash = contentHash(user);
+                    results.put(hash, classification);
+                    enrichments.add(toEnrichment(user, hash, classification, now));
+                }
+            }
+        }
+        store.saveAll(enrichments);
+    }
+
+    private Map<Long, Classification> classify(List<UserDTO> users) throws InterruptedException {
+        pace();
+        String lines = users.stream().map(UserEnricher::line).collect(Collectors.joining("\n"));
+        Future<List<Classification>> call = callers.submit(() -> chatClient.prompt()
+            .user(lines)
+            .call()
+            .entity(CLASSIFICATIONS));
+        long start = System.nanoTime();
+        try {
+            List<Classification> classifications = call.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return classifications == null ? Map.of() : classifications.stream()
+                .filter(classification -> classification.id() != null)
+                .collect(Collectors.toMap(Classification::id, Function.identity(), (first, second) -> first));
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new IllegalStateException("Chat model did not answer within " + timeout);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } finally {
+            calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Spaces calls evenly rather than letting a backlog burst through
+    private void pace() throws InterruptedException {
+        long wait = nextCallAt - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        nextCallAt = Math.max(nextCallAt, System.nanoTime()) + callIntervalNanos;
+    }
+
+    private static UserEnrichment toEnrichment(UserDTO user, String hash, Classification classification,
+                                               LocalDateTime now) {
+        return new UserEnrichment(user.getId(), classification.normalizedName(), classification.category(), hash, now);
+    }
+
+    private static String line(UserDTO user) {
+        return user.getId() + "\t" + printable(user.getName()) + "\t" + printable(user.getEmail());
+    }
+
+    private static String printable(String value) {
+        return value == null ? "" : value.replaceAll("[\\p{Cntrl}{}]", " ");
+    }
+
+    static String contentHash(UserDTO user) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(user.getName()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(user.getEmail()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
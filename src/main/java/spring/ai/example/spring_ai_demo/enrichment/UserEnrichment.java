@@ -0,0 +1,17 @@
+package spring.ai.example.spring_ai_demo.enrichment;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the chat model made of a user: its name in conventional capitalization
+ * and spacing, and what kind of account it looks like.
+ */
+public record UserEnrichment(Long userId, String normalizedName, Category category,
+                             @JsonIgnore String contentHash, LocalDateTime enrichedAt) {
+
+    public enum Category {
+        PERSON, BUSINESS, TEST, UNKNOWN
+    }
+}
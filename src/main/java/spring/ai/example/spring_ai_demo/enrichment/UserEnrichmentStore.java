@@ -0,0 +1,79 @@
+package spring.ai.example.spring_ai_demo.enrichment;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to {@code user_enrichments} (V7 migration).
+ */
+@Repository
+public class UserEnrichmentStore {
+
+    // A user archived while its batch was with the model is skipped, not a foreign key violation
+    private static final String UPSERT = """
+        insert into user_enrichments (user_id, content_hash, normalized_name, category, enriched_at)
+        select ?, ?, ?, ?, ? where exists (select 1 from users where id = ?)
+        on conflict (user_id) do update set content_hash = excluded.content_hash,
+            normalized_name = excluded.normalized_name, category = excluded.category,
+            enriched_at = excluded.enriched_at""";
+
+    private static final String FIND_BY_USER = """
+        select e.user_id, e.content_hash, e.normalized_name, e.category, e.enriched_at
+        from user_enrichments e join users u on u.id = e.user_id
+        where e.user_id = ? and u.deleted_at is null""";
+
+    private static final RowMapper<UserEnrichment> USER_ENRICHMENT = (rs, rowNum) -> new UserEnrichment(
+        rs.getLong("user_id"),
+        rs.getString("normalized_name"),
+        UserEnrichment.Category.valueOf(rs.getString("category")),
+        rs.getString("content_hash"),
+        rs.getTimestamp("enriched_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserEnrichmentStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<UserEnrichment> findByUserId(Long userId) {
+        return jdbcTemplate.query(FIND_BY_USER, USER_ENRICHMENT, userId).stream().findFirst();
+    }
+
+    /**
+     * The content hash each of the users was last enriched from; users never
+     * enriched are absent.
+     */
+    public Map<Long, String> findContentHashes(Collection<Long> userIds) {
+        Map<Long, String> hashes = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            jdbcTemplate.query("select user_id, content_hash from user_enrichments where user_id = any(?)",
+                rs -> {
+                    hashes.put(rs.getLong("user_id"), rs.getString("content_hash"));
+                },
+                (Object) userIds.toArray(Long[]::new));
+        }
+        return hashes;
+    }
+
+    public void saveAll(List<UserEnrichment> enrichments) {
+        if (enrichments.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, enrichments, enrichments.size(), (ps, enrichment) -> {
+            ps.setLong(1, enrichment.userId());
+            ps.setString(2, enrichment.contentHash());
+            ps.setString(3, enrichment.normalizedName());
+            ps.setString(4, enrichment.category().name());
+            ps.setTimestamp(5, Timestamp.valueOf(enrichment.enrichedAt()));
+            ps.setLong(6, enrichment.userId());
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package spring.ai.example.spring_ai_demo.event;
+
+import java.util.Objects;
+
+/**
+ * Published after a user row is created, updated or deleted. {@code previousEmail}
+ * is set when an update changed the email, so listeners keyed by email can drop
+ * the stale entry.
+ */
+public record UserChangedEvent(Type type, Long id, String email, String previousEmail) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static UserChangedEvent created(Long id, String email) {
+        return new UserChangedEvent(Type.CREATED, id, email, null);
+    }
+
+    public static UserChangedEvent updated(Long id, String email, String previousEmail) {
+        return new UserChangedEvent(Type.UPDATED, id, email,
+            Objects.equals(email, previousEmail) ? null : previousEmail);
+    }
+
+    public static UserChangedEvent deleted(Long id, String email) {
+        return new UserChangedEvent(Type.DELETED, id, email, null);
+    }
+}
@@ -0,0 +1,99 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits how many callers may hold or wait inside the pool at once. With virtual
+ * threads there is no request-thread cap any more, so without this every request
+ * would queue inside {@code getConnection()}; here they park on a fair semaphore
+ * sized to the pool instead, and give up after the same timeout the pool uses.
+ */
+public class ConnectionBulkheadDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public ConnectionBulkheadDataSource(DataSource target, int maxConcurrent, long timeoutMillis) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return release(obtain(() -> super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return release(obtain(() -> super.getConnection(username, password)));
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                    "Connection bulkhead full, waited " + timeoutMillis + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for connection bulkhead", e);
+        }
+    }
+
+    private Connection obtain(ConnectionSupplier supplier) throws SQLException {
+        try {
+            return supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps the connection so the permit is returned exactly once, on close.
+     */
+    private Connection release(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                boolean closing = method.getName().equals("close") && method.getParameterCount() == 0;
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                } finally {
+                    if (closing && released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,85 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread database timings from {@link InstrumentedDataSource} and
+ * {@link ReadWriteRoutingDataSource}: total time spent waiting in
+ * {@code getConnection()} and the slowest statement. Like
+ * {@link StatementCounter}, it only records between {@link #start()} and
+ * {@link #stop()}, so a caller can tell pool queuing apart from a slow database.
+ * <p>
+ * A read run on one thread on behalf of several callers (a shared or batched
+ * load) is measured with {@link #time} and handed to the others with {@link #add},
+ * so a caller that waited on it is not taken for one that used no database.
+ */
+public final class DatabaseTime {
+
+    private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>();
+
+    public record Sample(long connectionWaitNanos, long slowestStatementNanos) {
+
+        static final Sample NONE = new Sample(0, 0);
+    }
+
+    public record Timed<T>(T value, Sample sample) {
+    }
+
+    private DatabaseTime() {
+    }
+
+    public static void start() {
+        CURRENT.set(new long[2]);
+    }
+
+    /**
+     * @return the timings since {@link #start()}, or zeros if not started
+     */
+    public static Sample stop() {
+        long[] times = CURRENT.get();
+        CURRENT.remove();
+        return times != null ? new Sample(times[0], times[1]) : Sample.NONE;
+    }
+
+    /**
+     * Runs {@code read} and returns its result with the timings it alone caused.
+     * Those also count toward the current thread's timings, if started.
+     */
+    public static <T> Timed<T> time(Supplier<T> read) {
+        long[] outer = CURRENT.get();
+        long[] own = new long[2];
+        CURRENT.set(own);
+        try {
+            return new Timed<>(read.get(), new Sample(own[0], own[1]));
+        } finally {
+            if (outer != null) {
+                CURRENT.set(outer);
+                add(new Sample(own[0], own[1]));
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Counts timings measured elsewhere toward the current thread's, if started.
+     */
+    public static void add(Sample sample) {
+        connectionWait(sample.connectionWaitNanos());
+        statement(sample.slowestStatementNanos());
+    }
+
+    static void connectionWait(long nanos) {
+        long[] times = CURRENT.get();
+        if (times != null) {
+            times[0] += nanos;
+        }
+    }
+
+    static void statement(long nanos) {
+        long[] times = CURRENT.get();
+        if (times != null && nanos > times[1]) {
+            times[1] = nanos;
+        }
+    }
+}
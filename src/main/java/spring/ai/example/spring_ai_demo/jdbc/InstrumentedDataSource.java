@@ -0,0 +1,186 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports every statement execution to {@link StatementCounter}, connection
+ * waits and statement latency to {@link DatabaseTime} and, when a
+ * {@link QueryProfiler} is given, latency and row count per statement. A JDBC batch counts
+ * as one statement, as it is sent in one round trip. Bind values are only
+ * captured for statements the profiler samples.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final QueryProfiler profiler;
+
+    /**
+     * @param profiler the profiler to report to, or {@code null} to count statements only
+     */
+    public InstrumentedDataSource(DataSource target, QueryProfiler profiler) {
+        super(target);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return instrument(super.getConnection());
+        } finally {
+            DatabaseTime.connectionWait(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return instrument(super.getConnection(username, password));
+        } finally {
+            DatabaseTime.connectionWait(System.nanoTime() - start);
+        }
+    }
+
+    private Connection instrument(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                Object result = invoke(connection, method, args);
+                if (!(result instanceof Statement statement)) {
+                    return result;
+                }
+                // prepareStatement and prepareCall take the SQL up front; createStatement passes it to execute
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                boolean sampled = sql != null && profiler != null && profiler.sample();
+                return instrument(statement, sql, sampled);
+            });
+    }
+
+    private Statement instrument(Statement statement, String sql, boolean sampled) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+            : statement instanceof PreparedStatement ? PreparedStatement.class
+            : Statement.class;
+        return (Statement) Proxy.newProxyInstance(
+            Statement.class.getClassLoader(),
+            new Class<?>[] {type},
+            new StatementHandler(statement, sql, sampled ? new HashMap<>() : null));
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String sql;
+        private final Map<Integer, Object> binds;
+
+        StatementHandler(Statement target, String sql, Map<Integer, Object> binds) {
+            this.target = target;
+            this.sql = sql;
+            this.binds = binds;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (binds != null && name.startsWith("set") && args != null && args.length >= 2
+                        && args[0] instanceof Integer index) {
+                    binds.put(index, name.equals("setNull") ? null : args[1]);
+                }
+                Object result = InstrumentedDataSource.invoke(target, method, args);
+                return result instanceof ResultSet resultSet && profiler != null && sql != null
+                    ? countingRows(resultSet, sql)
+                    : result;
+            }
+
+            StatementCounter.increment();
+            long start = System.nanoTime();
+            Object result;
+            long elapsed;
+            try {
+                result = InstrumentedDataSource.invoke(target, method, args);
+            } finally {
+                elapsed = System.nanoTime() - start;
+                DatabaseTime.statement(elapsed);
+            }
+            if (profiler == null) {
+                return result;
+            }
+            String executed = sql != null ? sql
+                : args != null && args.length > 0 && args[0] instanceof String text ? text
+                : "<batch>";
+
+            profiler.record(executed, elapsed, updateCount(result));
+            if (binds != null) {
+                profiler.logSample(executed, new TreeMap<>(binds), elapsed);
+            } else if (sql == null && profiler.sample()) {
+                profiler.logSample(executed, Map.of(), elapsed);
+            }
+            return result instanceof ResultSet resultSet ? countingRows(resultSet, executed) : result;
+        }
+    }
+
+    /**
+     * Adds the rows read to the statement's total when the result set is closed.
+     */
+    private ResultSet countingRows(ResultSet resultSet, String sql) {
+        long[] rows = new long[1];
+        boolean[] closed = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+                Object result = invoke(resultSet, method, args);
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    rows[0]++;
+                } else if (method.getName().equals("close") && !closed[0]) {
+                    closed[0] = true;
+                    profiler.recordRows(sql, rows[0]);
+                }
+                return result;
+            });
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof Long count) {
+            return Math.max(count, 0);
+        }
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates execution count, latency and rows per normalized SQL statement, and
+ * logs a sample of full statements with their bind values. Sampled lines are
+ * formatted and written on a single background thread; if it falls behind, lines
+ * are dropped rather than slowing the caller.
+ */
+public class QueryProfiler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryProfiler.class);
+
+    private static final String OTHER = "<other statements>";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private final double sampleRate;
+    private final int maxStatements;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    // Raw SQL strings are few and reused, so normalization runs once per string
+    private final Map<String, Stats> byRawSql = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final ThreadPoolExecutor sampleLogger;
+
+    public QueryProfiler(double sampleRate, int maxStatements) {
+        this.sampleRate = sampleRate;
+        this.maxStatements = maxStatements;
+        this.sampleLogger = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1024),
+            task -> {
+                Thread thread = new Thread(task, "query-profiler-log");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (task, executor) -> dropped.increment());
+    }
+
+    public record QueryStats(String sql, long count, double totalMs, double maxMs, double meanMs, long rows) {
+    }
+
+    /**
+     * Whether the statement about to be prepared should be logged in full.
+     */
+    boolean sample() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    void record(String sql, long nanos, long rows) {
+        Stats entry = stats(sql);
+        entry.count.increment();
+        entry.nanos.add(nanos);
+        entry.maxNanos.accumulate(nanos);
+        entry.rows.add(rows);
+    }
+
+    void recordRows(String sql, long rows) {
+        stats(sql).rows.add(rows);
+    }
+
+    void logSample(String sql, Map<Integer, Object> binds, long nanos) {
+        sampleLogger.execute(() -> log.info("{} ms: {} {}",
+            String.format("%.3f", nanos / 1_000_000.0), WHITESPACE.matcher(sql).replaceAll(" "), binds.values()));
+    }
+
+    /**
+     * Statements ordered by total time spent, highest first.
+     */
+    public List<QueryStats> top(int limit) {
+        return stats.entrySet().stream()
+            .map(entry -> entry.getValue().snapshot(entry.getKey()))
+            .sorted(Comparator.comparingDouble(QueryStats::totalMs).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    public long droppedSamples() {
+        return dropped.sum();
+    }
+
+    public void reset() {
+        byRawSql.clear();
+        stats.clear();
+    }
+
+    @Override
+    public void close() {
+        sampleLogger.shutdown();
+    }
+
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return PARAMETER_LIST.matcher(normalized).replaceAll("(?)");
+    }
+
+    private Stats stats(String sql) {
+        Stats entry = byRawSql.get(sql);
+        if (entry != null) {
+            return entry;
+        }
+        String normalized = normalize(sql);
+        entry = stats.get(normalized);
+        if (entry == null) {
+            entry = stats.computeIfAbsent(stats.size() < maxStatements ? normalized : OTHER, key -> new Stats());
+        }
+        if (byRawSql.size() >= maxStatements * 4) {
+            byRawSql.clear();
+        }
+        byRawSql.put(sql, entry);
+        return entry;
+    }
+
+    private static final class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder rows = new LongAdder();
+
+        QueryStats snapshot(String sql) {
+            long n = count.sum();
+            double totalMs = nanos.sum() / 1_000_000.0;
+            return new QueryStats(sql, n, totalMs, maxNanos.get() / 1_000_000.0, n > 0 ? totalMs / n : 0, rows.sum());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replicas, round-robin, and everything else
+ * to the primary. Connections are fetched lazily, on the first statement, because
+ * the transaction manager opens the connection before it publishes the
+ * transaction's read-only flag. A replica that cannot hand out a connection is
+ * skipped in favour of the primary.
+ * <p>
+ * As the pools are only reached on that first statement, the time spent there
+ * waiting for a connection is reported to {@link DatabaseTime} from here rather
+ * than by an {@link InstrumentedDataSource} wrapping this proxy.
+ * <p>
+ * {@link #pinToPrimary()} routes the current thread's reads to the primary too,
+ * for callers that must see their own recent writes. {@link #onPrimary} does the
+ * same for a single read, such as one that fills a shared cache.
+ * <p>
+ * The pools are not owned by this proxy; whoever created them closes them.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        Router router = new Router();
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        afterPropertiesSet();
+    }
+
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Runs {@code read} with the current thread's reads on the primary, leaving
+     * the thread pinned afterwards only if it already was.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (PINNED.get() != null) {
+            return read.get();
+        }
+        pinToPrimary();
+        try {
+            return read.get();
+        } finally {
+            unpin();
+        }
+    }
+
+    private final class Router extends AbstractRoutingDataSource {
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        Router() {
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(PRIMARY, primary);
+            for (int i = 0; i < replicas.size(); i++) {
+                targets.put(i, replicas.get(i));
+            }
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+            setLenientFallback(false);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (replicas.isEmpty()
+                    || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    || PINNED.get() != null) {
+                return PRIMARY;
+            }
+            return Math.floorMod(next.getAndIncrement(), replicas.size());
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return route();
+            } finally {
+                DatabaseTime.connectionWait(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return determineTargetDataSource().getConnection(username, password);
+            } finally {
+                DatabaseTime.connectionWait(System.nanoTime() - start);
+            }
+        }
+
+        private Connection route() throws SQLException {
+            DataSource target = determineTargetDataSource();
+            if (target == primary) {
+                return primary.getConnection();
+            }
+            try {
+                return target.getConnection();
+            } catch (SQLException e) {
+                log.warn("Replica unavailable, reading from the primary: {}", e.getMessage());
+                return primary.getConnection();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+/**
+ * Per-thread count of statements executed through {@link InstrumentedDataSource}.
+ * Counting only happens between {@link #start()} and {@link #stop()}, so background
+ * work outside a request costs a single thread-local read per statement.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    private StatementCounter() {
+    }
+
+    public static void start() {
+        CURRENT.set(new int[1]);
+    }
+
+    /**
+     * @return the statements executed since {@link #start()}, or 0 if not started
+     */
+    public static int stop() {
+        int[] count = CURRENT.get();
+        CURRENT.remove();
+        return count != null ? count[0] : 0;
+    }
+
+    static void increment() {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+}
@@ -2,14 +2,20 @@ package spring.ai.example.spring_ai_demo.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 
+// Deleted rows stay until UserArchiveService moves them out (V6 migration); every
+// entity query, derived or criteria, sees only live ones
 @Entity
 @Table(name = "users")
 @EntityListeners(AuditingEntityListener.class)
+@SQLRestriction("deleted_at is null")
+@SQLDelete(sql = "update users set deleted_at = localtimestamp, version = version + 1 where id = ? and version = ?")
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,7 +27,7 @@ public class User {
 
     @Email(message = "Email should be valid")
     @NotBlank(message = "Email is required")
-    @Column(unique = true)
+    // Unique among live users: a partial unique index, see V6
     private String email;
 
     @Pattern(regexp = "^\\+?[1-9]\\d{1,14}$", message = "Phone number must be valid")
@@ -38,6 +44,12 @@ public class User {
     @Enumerated(EnumType.STRING)
     private UserStatus status = UserStatus.ACTIVE;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    private LocalDateTime deletedAt;
+
     public enum UserStatus {
         ACTIVE, INACTIVE, SUSPENDED
     }
@@ -98,4 +110,20 @@ public class User {
     public void setStatus(UserStatus status) {
         this.status = status;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
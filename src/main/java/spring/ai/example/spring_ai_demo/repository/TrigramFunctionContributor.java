@@ -0,0 +1,23 @@
+package spring.ai.example.spring_ai_demo.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the pg_trgm {@code <%} operator as {@code word_similar(term, text)}.
+ * Only the operator form is served by the trigram indexes; the equivalent
+ * {@code word_similarity(term, text) >= threshold} is not, and ends up as a
+ * sequential scan. The threshold is the server's
+ * {@code pg_trgm.word_similarity_threshold} (0.6 by default).
+ */
+public class TrigramFunctionContributor implements FunctionContributor {
+
+    static final String WORD_SIMILAR = "word_similar";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functions) {
+        functions.getFunctionRegistry().registerPattern(WORD_SIMILAR, "(?1 <% ?2)",
+            functions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
@@ -1,15 +1,56 @@
 package spring.ai.example.spring_ai_demo.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
 import spring.ai.example.spring_ai_demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    Page<User> findByNameContainingIgnoreCase(String name, Pageable pageable);
-    Page<User> findByStatus(User.UserStatus status, Pageable pageable);
-    boolean existsByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserRepositoryCustom {
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // DTO reads: constructor expressions never enter the persistence context.
+    // Listings and name search live in UserRepositoryCustomImpl.
+    @Transactional(readOnly = true)
+    @Query("""
+        select new spring.ai.example.spring_ai_demo.dto.UserDTO(u.id, u.name, u.email, u.phoneNumber, u.status, u.version)
+        from User u where u.id = :id""")
+    Optional<UserDTO> findDtoById(@Param("id") Long id);
+
+    // Keyset page of ids; the primary key index serves it in id order
+    @Query("select u.id from User u where u.id > :after order by u.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Limit limit);
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Keyset (seek) variants: no OFFSET and no count query. The cursor needs the
+    // entity's sort keys, so these load read-only entities without snapshots.
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Window<User> findBy(ScrollPosition position, Limit limit, Sort sort);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Window<User> findByStatus(User.UserStatus status, ScrollPosition position, Limit limit, Sort sort);
 }
 
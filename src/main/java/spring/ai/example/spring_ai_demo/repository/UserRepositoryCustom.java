@@ -0,0 +1,106 @@
+package spring.ai.example.spring_ai_demo.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.dto.UserPatch;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hand-written JDBC operations that Spring Data cannot derive efficiently.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Inserts the users in a single JDBC batch, skipping rows whose email already
+     * exists. Returns the generated ids in input order, with {@code null} for
+     * skipped rows.
+     */
+    List<Long> insertAllIgnoringDuplicates(List<User> users);
+
+    /**
+     * Inserts the user in one {@code INSERT ... ON CONFLICT DO NOTHING RETURNING}
+     * statement. Empty if the email already exists, including when a concurrent
+     * insert of the same email committed first.
+     */
+    Optional<UserDTO> insertIgnoringDuplicate(User user);
+
+    /**
+     * Applies the specification to a {@code UserDTO} constructor query, so the
+     * page is read without loading managed entities. The total is taken from
+     * {@code total}, which is only called when the page itself cannot tell. A
+     * {@code null} spec matches every user.
+     */
+    Page<UserDTO> findDtos(Specification<User> spec, Pageable pageable, LongSupplier total);
+
+    /**
+     * Name search backed by the pg_trgm / text_pattern_ops indexes (V2 migration),
+     * mapped straight from the JDBC rows. Results are ordered by relevance, so
+     * any sort on the pageable is ignored.
+     */
+    Page<UserDTO> searchByName(String name, NameMatch match, Pageable pageable, LongSupplier total);
+
+    long countByName(String name, NameMatch match);
+
+    /**
+     * The planner's estimate of the number of users, scaled from the last
+     * {@code ANALYZE} to the table's current size. Costs no scan, but can be off
+     * by the rows changed since. Negative if the table has never been analyzed.
+     */
+    long estimateCount();
+
+    /**
+     * The users with these ids, in no particular order, from one
+     * {@code id = any(?)} statement. Ids with no live user are absent.
+     */
+    List<UserDTO> findDtosByIds(Collection<Long> ids);
+
+    /**
+     * Passes every user to {@code action} in id order from a single server-side
+     * cursor, {@code fetchSize} rows per round trip, in a read-only transaction.
+     * Rows are mapped from JDBC and never enter the persistence context, so
+     * memory use does not grow with the table.
+     */
+    void forEachDto(int fetchSize, Consumer<UserDTO> action);
+
+    /**
+     * Applies the patch, bumps the version and returns the new row in one
+     * {@code UPDATE ... RETURNING} round trip. Empty if no row has the id, or if
+     * {@code expectedVersion} is non-null and the row is at another version.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if the patch sets an email already in use
+     */
+    Optional<PatchedUser> patch(Long id, UserPatch patch, Long expectedVersion);
+
+    /**
+     * Marks the row deleted in one statement, returning its email, or empty under
+     * the same conditions as {@link #patch}. The row stays, invisible to every
+     * query, until {@link #archiveDeleted} moves it out.
+     */
+    Optional<String> deleteReturningEmail(Long id, Long expectedVersion);
+
+    /**
+     * Moves up to {@code limit} users deleted before {@code deletedBefore} to
+     * {@code users_archive}. Returns the number moved.
+     */
+    int archiveDeleted(LocalDateTime deletedBefore, int limit);
+
+    /**
+     * Moves up to {@code limit} live INACTIVE users last updated before
+     * {@code updatedBefore} to {@code users_archive}, returning them. To the API
+     * this is a delete.
+     */
+    List<UserDTO> archiveInactive(LocalDateTime updatedBefore, int limit);
+
+    record PatchedUser(UserDTO user, String previousEmail) {
+    }
+}
@@ -0,0 +1,294 @@
+package spring.ai.example.spring_ai_demo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.dto.UserPatch;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String INSERT_IGNORING_DUPLICATES = """
+        insert into users (name, email, phone_number, status, created_at, updated_at)
+        values (?, ?, ?, ?, ?, ?)
+        on conflict (email) where deleted_at is null do nothing""";
+
+    private static final String RETURNING_DTO = " returning id, name, email, phone_number, status, version";
+
+    // Deleted rows are skipped here as on the entity (@SQLRestriction), which also
+    // lets the planner use the partial indexes from V6
+    private static final String SELECT_DTO =
+        "select id, name, email, phone_number, status, version from users where deleted_at is null ";
+    private static final String SELECT_DTO_ORDER_BY_ID = SELECT_DTO + "order by id";
+    // One array parameter: the same statement, and plan, for any number of ids
+    private static final String SELECT_DTOS_BY_IDS = SELECT_DTO + "and id = any(?)";
+    private static final String COUNT = "select count(*) from users where deleted_at is null ";
+
+    // reltuples/relpages is the density at the last ANALYZE; the relation's current
+    // size in pages scales it the way the planner does, and the share of null
+    // deleted_at leaves out deleted rows. -1 means never analyzed.
+    private static final String ESTIMATE_COUNT = """
+        select (case when c.relpages > 0
+            then c.reltuples / c.relpages * (pg_relation_size(c.oid) / current_setting('block_size')::int)
+            else c.reltuples end
+          * coalesce((select s.null_frac from pg_stats s
+                      where s.schemaname = n.nspname and s.tablename = c.relname and s.attname = 'deleted_at'), 1)
+          )::bigint
+        from pg_class c join pg_namespace n on n.oid = c.relnamespace
+        where c.oid = 'users'::regclass""";
+
+    private static final String NAME_CONTAINS = "and lower(name) like '%' || ? || '%' escape '\\' ";
+    private static final String NAME_PREFIX = "and lower(name) like ? || '%' escape '\\' ";
+    private static final String NAME_FUZZY = "and ? <% lower(name) ";
+
+    // Locking the row in the FROM subquery lets RETURNING report the email it had
+    // before this statement, even if a concurrent update committed in between
+    private static final String PATCH_FROM = """
+        updated_at = ?
+        from (select id, email from users where id = ? and deleted_at is null for update) old
+        where u.id = old.id
+        """;
+    private static final String PATCH_RETURNING =
+        "returning u.id, u.name, u.email, u.phone_number, u.status, u.version, old.email as previous_email";
+    private static final String SOFT_DELETE = """
+        update users set deleted_at = ?, updated_at = ?, version = version + 1
+        where id = ? and deleted_at is null
+        """;
+    private static final String AND_VERSION = "and version = ? ";
+
+    // One statement per batch: the rows leave users and enter users_archive
+    // atomically. SKIP LOCKED steps over rows a request is writing right now.
+    private static final String ARCHIVE = """
+        with moved as (
+            delete from users where id in (
+                select id from users where %s order by id limit ? for update skip locked)
+            returning id, name, email, phone_number, status, created_at, updated_at, version, deleted_at)
+        insert into users_archive (id, name, email, phone_number, status, created_at, updated_at, version, deleted_at)
+        select id, name, email, phone_number, status, created_at, updated_at, version, deleted_at from moved
+        """;
+    private static final String ARCHIVE_DELETED = ARCHIVE.formatted("deleted_at < ?");
+    private static final String ARCHIVE_INACTIVE =
+        ARCHIVE.formatted("status = 'INACTIVE' and updated_at < ? and deleted_at is null") + RETURNING_DTO;
+
+    private static final RowMapper<UserDTO> USER_DTO = (rs, rowNum) -> new UserDTO(
+        rs.getLong("id"),
+        rs.getString("name"),
+        rs.getString("email"),
+        rs.getString("phone_number"),
+        rs.getString("status") != null ? User.UserStatus.valueOf(rs.getString("status")) : null,
+        rs.getLong("version"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    UserRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Long> insertAllIgnoringDuplicates(List<User> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int[] counts = jdbcTemplate.batchUpdate(
+            con -> con.prepareStatement(INSERT_IGNORING_DUPLICATES, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    User user = users.get(i);
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getEmail());
+                    ps.setString(3, user.getPhoneNumber());
+                    ps.setString(4, user.getStatus().name());
+                    ps.setTimestamp(5, now);
+                    ps.setTimestamp(6, now);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return users.size();
+                }
+            },
+            keyHolder);
+
+        // RETURNING yields no row for a skipped insert, so keys line up with the
+        // statements whose update count is 1
+        Iterator<Map<String, Object>> keys = keyHolder.getKeyList().iterator();
+        List<Long> ids = new ArrayList<>(users.size());
+        for (int count : counts) {
+            ids.add(count > 0 ? ((Number) keys.next().get("id")).longValue() : null);
+        }
+        return ids;
+    }
+
+    @Override
+    public Optional<UserDTO> insertIgnoringDuplicate(User user) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<UserDTO> rows = jdbcTemplate.query(INSERT_IGNORING_DUPLICATES + RETURNING_DTO, USER_DTO,
+            user.getName(), user.getEmail(), user.getPhoneNumber(), user.getStatus().name(), now, now);
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<UserDTO> findDtos(Specification<User> spec, Pageable pageable, LongSupplier total) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDTO> query = cb.createQuery(UserDTO.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.construct(UserDTO.class,
+            root.get("id"), root.get("name"), root.get("email"), root.get("phoneNumber"), root.get("status"),
+            root.get("version")));
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<UserDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult(Math.toIntExact(pageable.getOffset()));
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<UserDTO> searchByName(String name, NameMatch match, Pageable pageable, LongSupplier total) {
+        NameQuery nameQuery = nameQuery(name, match);
+        String sql = SELECT_DTO + nameQuery.filter() + nameQuery.orderBy();
+        List<Object> args = new ArrayList<>();
+        args.add(nameQuery.filterArg());
+        args.addAll(List.of(nameQuery.orderArgs()));
+        if (pageable.isPaged()) {
+            sql += "limit ? offset ?";
+            args.add(pageable.getPageSize());
+            args.add(pageable.getOffset());
+        }
+        List<UserDTO> content = jdbcTemplate.query(sql, USER_DTO, args.toArray());
+        return PageableExecutionUtils.getPage(content, pageable, total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countByName(String name, NameMatch match) {
+        NameQuery nameQuery = nameQuery(name, match);
+        return jdbcTemplate.queryForObject(COUNT + nameQuery.filter(), Long.class, nameQuery.filterArg());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long estimateCount() {
+        return jdbcTemplate.queryForObject(ESTIMATE_COUNT, Long.class);
+    }
+
+    private static NameQuery nameQuery(String name, NameMatch match) {
+        String term = name.toLowerCase(Locale.ROOT);
+        String pattern = UserRepository.escapeLike(term);
+        return switch (match) {
+            case CONTAINS -> new NameQuery(NAME_CONTAINS, pattern, "order by similarity(lower(name), ?) desc, id ", term);
+            case PREFIX -> new NameQuery(NAME_PREFIX, pattern, "order by lower(name), id ");
+            case FUZZY -> new NameQuery(NAME_FUZZY, term, "order by word_similarity(?, lower(name)) desc, id ", term);
+        };
+    }
+
+    private record NameQuery(String filter, Object filterArg, String orderBy, Object... orderArgs) {
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> findDtosByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT_DTOS_BY_IDS, USER_DTO, (Object) ids.toArray(Long[]::new));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachDto(int fetchSize, Consumer<UserDTO> action) {
+        // pgjdbc only honours the fetch size inside a transaction; otherwise it reads the whole result
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_DTO_ORDER_BY_ID);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(USER_DTO.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    public Optional<PatchedUser> patch(Long id, UserPatch patch, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("update users u set ");
+        List<Object> args = new ArrayList<>();
+        patch.changes().forEach((field, value) -> {
+            sql.append(field.column()).append(" = ?, ");
+            args.add(value instanceof User.UserStatus status ? status.name() : value);
+        });
+        sql.append("version = u.version + 1, ").append(PATCH_FROM);
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.add(id);
+        if (expectedVersion != null) {
+            sql.append("and u.version = ? ");
+            args.add(expectedVersion);
+        }
+        sql.append(PATCH_RETURNING);
+
+        List<PatchedUser> rows = jdbcTemplate.query(sql.toString(),
+            (rs, rowNum) -> new PatchedUser(USER_DTO.mapRow(rs, rowNum), rs.getString("previous_email")),
+            args.toArray());
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public Optional<String> deleteReturningEmail(Long id, Long expectedVersion) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<String> emails = expectedVersion != null
+            ? jdbcTemplate.queryForList(SOFT_DELETE + AND_VERSION + "returning email", String.class,
+                now, now, id, expectedVersion)
+            : jdbcTemplate.queryForList(SOFT_DELETE + "returning email", String.class, now, now, id);
+        return emails.stream().findFirst();
+    }
+
+    @Override
+    public int archiveDeleted(LocalDateTime deletedBefore, int limit) {
+        return jdbcTemplate.update(ARCHIVE_DELETED, Timestamp.valueOf(deletedBefore), limit);
+    }
+
+    @Override
+    public List<UserDTO> archiveInactive(LocalDateTime updatedBefore, int limit) {
+        return jdbcTemplate.query(ARCHIVE_INACTIVE, USER_DTO, Timestamp.valueOf(updatedBefore), limit);
+    }
+}
@@ -0,0 +1,87 @@
+package spring.ai.example.spring_ai_demo.repository;
+
+import jakarta.persistence.criteria.Expression;
+import org.springframework.data.jpa.domain.Specification;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserFilter;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Composable {@link Specification}s for {@link User}. Each predicate is written
+ * against the same expression as its index (see the V2/V3 migrations), so
+ * combined filters stay index-served:
+ * <ul>
+ *   <li>name: {@code lower(name)} trigram / text_pattern_ops indexes; fuzzy matching
+ *       goes through the {@code <%} operator (see {@link TrigramFunctionContributor})</li>
+ *   <li>email domain: {@code lower(email)} trigram index</li>
+ *   <li>status + time range: ({@code status}, {@code created_at|updated_at}, {@code id})</li>
+ * </ul>
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> matching(UserFilter filter, NameMatch match) {
+        return Specification.where(nameMatches(filter.name(), match))
+            .and(hasStatus(filter.status()))
+            .and(emailDomainIs(filter.emailDomain()))
+            .and(createdBetween(filter.createdAfter(), filter.createdBefore()))
+            .and(updatedBetween(filter.updatedAfter(), filter.updatedBefore()));
+    }
+
+    public static Specification<User> nameMatches(String name, NameMatch match) {
+        if (name == null) {
+            return null;
+        }
+        String term = name.toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> {
+            Expression<String> lowerName = cb.lower(root.get("name"));
+            return switch (match) {
+                case CONTAINS -> cb.like(lowerName, "%" + UserRepository.escapeLike(term) + "%", '\\');
+                case PREFIX -> cb.like(lowerName, UserRepository.escapeLike(term) + "%", '\\');
+                case FUZZY -> cb.isTrue(cb.function(TrigramFunctionContributor.WORD_SIMILAR, Boolean.class,
+                    cb.literal(term), lowerName));
+            };
+        };
+    }
+
+    public static Specification<User> hasStatus(User.UserStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<User> emailDomainIs(String domain) {
+        if (domain == null) {
+            return null;
+        }
+        String suffix = "%@" + UserRepository.escapeLike(domain.toLowerCase(Locale.ROOT));
+        return (root, query, cb) -> cb.like(cb.lower(root.get("email")), suffix, '\\');
+    }
+
+    public static Specification<User> createdBetween(LocalDateTime from, LocalDateTime to) {
+        return between("createdAt", from, to);
+    }
+
+    public static Specification<User> updatedBetween(LocalDateTime from, LocalDateTime to) {
+        return between("updatedAt", from, to);
+    }
+
+    private static Specification<User> between(String attribute, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Expression<LocalDateTime> path = root.get(attribute);
+            if (from == null) {
+                return cb.lessThan(path, to);
+            }
+            if (to == null) {
+                return cb.greaterThanOrEqualTo(path, from);
+            }
+            return cb.and(cb.greaterThanOrEqualTo(path, from), cb.lessThan(path, to));
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package spring.ai.example.spring_ai_demo.search;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to {@code user_embeddings} (V8 migration).
+ */
+@Repository
+@ConditionalOnProperty(name = "app.users.semantic-search.enabled", havingValue = "true")
+public class UserEmbeddingStore {
+
+    public record StoredEmbedding(Long userId, String contentHash, float[] vector) {
+    }
+
+    // A user archived while its batch was with the model is skipped, not a foreign key violation
+    private static final String UPSERT = """
+        insert into user_embeddings (user_id, content_hash, embedding, embedded_at)
+        select ?, ?, ?, ? where exists (select 1 from users where id = ?)
+        on conflict (user_id) do update set content_hash = excluded.content_hash,
+            embedding = excluded.embedding, embedded_at = excluded.embedded_at""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserEmbeddingStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The stored embedding of each of the users; users never embedded are absent.
+     */
+    public Map<Long, StoredEmbedding> findByUserIds(Collection<Long> userIds) {
+        Map<Long, StoredEmbedding> embeddings = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            jdbcTemplate.query("select user_id, content_hash, embedding from user_embeddings where user_id = any(?)",
+                rs -> {
+                    long userId = rs.getLong("user_id");
+                    embeddings.put(userId,
+                        new StoredEmbedding(userId, rs.getString("content_hash"), decode(rs.getBytes("embedding"))));
+                },
+                (Object) userIds.toArray(Long[]::new));
+        }
+        return embeddings;
+    }
+
+    public void saveAll(List<StoredEmbedding> embeddings) {
+        if (embeddings.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT, embeddings, embeddings.size(), (ps, embedding) -> {
+            ps.setLong(1, embedding.userId());
+            ps.setString(2, embedding.contentHash());
+            ps.setBytes(3, encode(embedding.vector()));
+            ps.setTimestamp(4, now);
+            ps.setLong(5, embedding.userId());
+        });
+    }
+
+    public void deleteByUserIds(Collection<Long> userIds) {
+        if (!userIds.isEmpty()) {
+            jdbcTemplate.update("delete from user_embeddings where user_id = any(?)",
+                (Object) userIds.toArray(Long[]::new));
+        }
+    }
+
+    private static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,306 @@
+package spring.ai.example.spring_ai_demo.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.jelmerk.knn.DistanceFunctions;
+import com.github.jelmerk.knn.Item;
+import com.github.jelmerk.knn.SearchResult;
+import com.github.jelmerk.knn.hnsw.HnswIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process HNSW index of user embeddings for "find users like X" queries.
+ * Changed ids are queued by {@link UserChangedEvent} and embedded in batches
+ * on a background thread, so a search never touches the database and only
+ * calls the {@link EmbeddingModel} for query text it has not seen recently.
+ * <p>
+ * Vectors are kept in {@link UserEmbeddingStore} with a hash of the text they
+ * were computed from. On startup the index is rebuilt from there, walking the
+ * users by id a batch at a time, and only users whose text changed while the
+ * application was down are sent to the model.
+ */
+@Component
+@ConditionalOnProperty(name = "app.users.semantic-search.enabled", havingValue = "true")
+public class UserSemanticIndex {
+
+    public record Match(UserDTO user, float score) {
+    }
+
+    record UserVector(Long id, float[] vector, long version, UserDTO user) implements Item<Long, float[]> {
+
+        @Override
+        public int dimensions() {
+            return vector.length;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(UserSemanticIndex.class);
+
+    private static final int M = 16;
+    private static final int EF = 64;
+    private static final int EF_CONSTRUCTION = 200;
+    private static final int INITIAL_CAPACITY = 10_000;
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final UserRepository userRepository;
+    private final UserEmbeddingStore store;
+    private final EmbeddingModel embeddingModel;
+    private final int batchSize;
+    private final Duration flushInterval;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong versions = new AtomicLong();
+    private final Cache<String, float[]> queryVectors = Caffeine.newBuilder().maximumSize(1_000).build();
+    private final ScheduledExecutorService indexer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-semantic-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Created on the first batch, once the embedding dimension is known. Writes
+    // are serialized on this object; searches do not lock.
+    private volatile HnswIndex<Long, float[], UserVector, Float> index;
+
+    // Last id loaded by the startup rebuild; null when there is none in progress
+    private volatile Long rebuiltTo;
+
+    public UserSemanticIndex(UserRepository userRepository, UserEmbeddingStore store, EmbeddingModel embeddingModel,
+                             @Value("${app.users.semantic-search.batch-size:64}") int batchSize,
+                             @Value("${app.users.semantic-search.flush-interval:200ms}") Duration flushInterval) {
+        this.userRepository = userRepository;
+        this.store = store;
+        this.embeddingModel = embeddingModel;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+        scheduleFlush(flushInterval);
+    }
+
+    /**
+     * Queues every user for the next flushes, which page through them by id.
+     */
+    void rebuild() {
+        rebuiltTo = 0L;
+    }
+
+    @PreDestroy
+    public void stop() {
+        indexer.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() == UserChangedEvent.Type.DELETED) {
+            remove(event.id());
+        }
+        // Deletes are queued too: a batch loaded before the delete committed may
+        // re-add the user, and the next flush removes it again
+        pending.add(event.id());
+    }
+
+    public List<Match> search(String text, int k) {
+        HnswIndex<Long, float[], UserVector, Float> current = index;
+        if (current == null) {
+            return List.of();
+        }
+        return toMatches(current.findNearest(queryVectors.get(text, key -> normalize(embeddingModel.embed(key))), k));
+    }
+
+    /**
+     * Nearest neighbours of an indexed user, excluding the user itself. Empty if
+     * the user is not (yet) indexed.
+     */
+    public Optional<List<Match>> similarTo(Long id, int k) {
+        HnswIndex<Long, float[], UserVector, Float> current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return current.get(id).map(item -> toMatches(current.findNearest(item.vector(), k + 1)).stream()
+            .filter(match -> !id.equals(match.user().getId()))
+            .limit(k)
+            .toList());
+    }
+
+    public int size() {
+        HnswIndex<Long, float[], UserVector, Float> current = index;
+        return current != null ? current.size() : 0;
+    }
+
+    private void scheduleFlush(Duration delay) {
+        indexer.schedule(() -> {
+            Duration next = flushInterval;
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // Ids stay queued; back off while the embedding server is unavailable
+                next = delay.multipliedBy(2).compareTo(MAX_RETRY_DELAY) < 0 ? delay.multipliedBy(2) : MAX_RETRY_DELAY;
+                log.warn("Semantic index update failed, {} users pending, retrying in {}: {}",
+                    pending.size(), next, e.toString());
+            }
+            scheduleFlush(next);
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Embeds and indexes the queued users, {@code batchSize} per embedding call,
+     * then the next pages of a rebuild. A failed page is retried from the same
+     * id by the next flush.
+     */
+    void flush() {
+        flushPending();
+        for (Long after = rebuiltTo; after != null; after = rebuiltTo) {
+            List<Long> ids = userRepository.findIdsAfter(after, Limit.of(batchSize));
+            if (!ids.isEmpty()) {
+                index(ids);
+            }
+            rebuiltTo = ids.size() < batchSize ? null : ids.get(ids.size() - 1);
+            // Changes made during a long rebuild are not held up behind it
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        while (!pending.isEmpty()) {
+            List<Long> ids = new ArrayList<>(batchSize);
+            Iterator<Long> it = pending.iterator();
+            while (it.hasNext() && ids.size() < batchSize) {
+                ids.add(it.next());
+            }
+            // Dequeue first, so a change arriving while this batch is in flight queues the id again
+            pending.removeAll(ids);
+            try {
+                index(ids);
+            } catch (RuntimeException e) {
+                pending.addAll(ids);
+                throw e;
+            }
+        }
+    }
+
+    private void index(List<Long> ids) {
+        List<UserDTO> users = userRepository.findDtosByIds(ids);
+        Map<Long, UserEmbeddingStore.StoredEmbedding> stored = store.findByUserIds(ids);
+
+        Map<Long, float[]> vectors = new HashMap<>();
+        List<UserDTO> changed = new ArrayList<>();
+        for (UserDTO user : users) {
+            UserEmbeddingStore.StoredEmbedding embedding = stored.get(user.getId());
+            if (embedding != null && embedding.contentHash().equals(contentHash(user))) {
+                vectors.put(user.getId(), embedding.vector());
+            } else {
+                changed.add(user);
+            }
+        }
+        if (!changed.isEmpty()) {
+            List<float[]> embedded = embeddingModel.embed(changed.stream().map(UserSemanticIndex::text).toList());
+            List<UserEmbeddingStore.StoredEmbedding> embeddings = new ArrayList<>(changed.size());
+            for (int i = 0; i < changed.size(); i++) {
+                UserDTO user = changed.get(i);
+                float[] vector = normalize(embedded.get(i));
+                vectors.put(user.getId(), vector);
+                embeddings.add(new UserEmbeddingStore.StoredEmbedding(user.getId(), contentHash(user), vector));
+            }
+            store.saveAll(embeddings);
+        }
+
+        synchronized (this) {
+            for (UserDTO user : users) {
+                add(new UserVector(user.getId(), vectors.get(user.getId()), versions.incrementAndGet(), user));
+            }
+        }
+        List<Long> gone = ids.stream().filter(id -> !vectors.containsKey(id)).toList();
+        gone.forEach(this::remove);
+        store.deleteByUserIds(gone);
+    }
+
+    private void add(UserVector item) {
+        if (index == null) {
+            index = HnswIndex.newBuilder(item.dimensions(), DistanceFunctions.FLOAT_INNER_PRODUCT, INITIAL_CAPACITY)
+                .withM(M)
+                .withEf(EF)
+                .withEfConstruction(EF_CONSTRUCTION)
+                .withRemoveEnabled()
+                .build();
+        }
+        if (index.size() >= index.getMaxItemCount()) {
+            index.resize(index.getMaxItemCount() * 2);
+        }
+        index.add(item);
+    }
+
+    private synchronized void remove(Long id) {
+        if (index != null) {
+            index.remove(id, versions.incrementAndGet());
+        }
+    }
+
+    private static List<Match> toMatches(List<SearchResult<UserVector, Float>> results) {
+        return results.stream()
+            .map(result -> new Match(result.item().user(), 1 - result.distance()))
+            .toList();
+    }
+
+    // Unit vectors turn cosine distance into 1 - dot product, a third of the work per comparison
+    private static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        float norm = (float) Math.sqrt(sum);
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = norm > 0 ? vector[i] / norm : 0;
+        }
+        return unit;
+    }
+
+    static String text(UserDTO user) {
+        return user.getName() + " <" + user.getEmail() + ">"
+            + (user.getStatus() != null ? " " + user.getStatus().name().toLowerCase(Locale.ROOT) : "");
+    }
+
+    static String contentHash(UserDTO user) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text(user).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code users} down to the rows the API can return. Deleted users past
+ * {@code app.users.archive.deleted-retention}, and users INACTIVE with no update
+ * for {@code app.users.archive.inactive-after}, are moved to {@code users_archive}
+ * in batches of their own short statement, so the job never holds many row locks
+ * or a long transaction against live traffic.
+ */
+@Service
+public class UserArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserArchiveService.class);
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration interval;
+    private final Duration deletedRetention;
+    private final Duration inactiveAfter;
+    private final int batchSize;
+    private final Counter archivedDeleted;
+    private final Counter archivedInactive;
+
+    private final ScheduledExecutorService archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserArchiveService(UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                              ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${app.users.archive.interval:1h}") Duration interval,
+                              @Value("${app.users.archive.deleted-retention:30d}") Duration deletedRetention,
+                              @Value("${app.users.archive.inactive-after:365d}") Duration inactiveAfter,
+                              @Value("${app.users.archive.batch-size:1000}") int batchSize) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.interval = interval;
+        this.deletedRetention = deletedRetention;
+        this.inactiveAfter = inactiveAfter;
+        this.batchSize = batchSize;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.archivedDeleted = registry != null ? archivedCounter(registry, "deleted") : null;
+        this.archivedInactive = registry != null ? archivedCounter(registry, "inactive") : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        archiver.scheduleWithFixedDelay(this::runSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        archiver.shutdownNow();
+    }
+
+    /**
+     * Archives everything currently due, batch by batch. Returns the number of
+     * users moved.
+     */
+    public int archive() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        int moved;
+        do {
+            moved = userRepository.archiveDeleted(now.minus(deletedRetention), batchSize);
+            deleted += moved;
+        } while (moved == batchSize && !Thread.currentThread().isInterrupted());
+
+        int inactive = 0;
+        List<UserDTO> archived;
+        do {
+            archived = userRepository.archiveInactive(now.minus(inactiveAfter), batchSize);
+            // Already deleted users were announced when they were deleted; these leave the API now
+            archived.forEach(user -> eventPublisher.publishEvent(UserChangedEvent.deleted(user.getId(), user.getEmail())));
+            inactive += archived.size();
+        } while (archived.size() == batchSize && !Thread.currentThread().isInterrupted());
+
+        if (archivedDeleted != null) {
+            archivedDeleted.increment(deleted);
+            archivedInactive.increment(inactive);
+        }
+        if (deleted + inactive > 0) {
+            log.info("Archived {} deleted and {} inactive users", deleted, inactive);
+        }
+        return deleted + inactive;
+    }
+
+    private void runSafely() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            log.warn("User archival failed, retrying in {}: {}", interval, e.toString());
+        }
+    }
+
+    private static Counter archivedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("user.archived")
+            .description("Users moved to users_archive")
+            .tag("reason", reason)
+            .register(registry);
+    }
+}
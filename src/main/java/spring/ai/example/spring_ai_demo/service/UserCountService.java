@@ -0,0 +1,97 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import spring.ai.example.spring_ai_demo.dto.CountStrategy;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserFilter;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Supplies the total for a user listing page according to a {@link CountStrategy}.
+ * Unfiltered listings default to {@link CountStrategy#ESTIMATED} and filtered ones
+ * to {@link CountStrategy#EXACT}. Postgres keeps no statistics for arbitrary filter
+ * combinations, so an estimate requested for a filtered listing is served from
+ * the cache instead.
+ * <p>
+ * With read replicas ({@code app.datasource.routing.enabled}), only counts read
+ * from the primary are cached: one taken from a lagging replica just after a write
+ * would be served for the whole TTL, including to the writer.
+ */
+@Service
+public class UserCountService {
+
+    public static final String CACHE = "userCounts";
+
+    private record Key(UserFilter filter, NameMatch match) {
+    }
+
+    private final UserRepository userRepository;
+    private final Cache counts;
+    private final boolean replicas;
+
+    public UserCountService(UserRepository userRepository, CacheManager cacheManager,
+                            @Value("${app.datasource.routing.enabled:false}") boolean replicas) {
+        this.userRepository = userRepository;
+        this.counts = cacheManager.getCache(CACHE);
+        this.replicas = replicas;
+    }
+
+    /**
+     * The strategy that will actually be used for a listing with this filter.
+     */
+    public CountStrategy resolve(CountStrategy requested, UserFilter filter) {
+        boolean filtered = filter != null && !filter.isEmpty();
+        if (requested == null) {
+            return filtered ? CountStrategy.EXACT : CountStrategy.ESTIMATED;
+        }
+        return requested == CountStrategy.ESTIMATED && filtered ? CountStrategy.CACHED : requested;
+    }
+
+    /**
+     * @param strategy a strategy returned by {@link #resolve}
+     * @param exact    runs the {@code count(*)} for this filter
+     */
+    public LongSupplier total(CountStrategy strategy, UserFilter filter, NameMatch match, LongSupplier exact) {
+        return switch (strategy) {
+            case EXACT -> exact;
+            case CACHED -> () -> cached(key(filter, match), exact);
+            case ESTIMATED -> () -> {
+                long estimate = userRepository.estimateCount();
+                return estimate >= 0 ? estimate : exact.getAsLong();
+            };
+        };
+    }
+
+    /**
+     * Any write can move a row in or out of some filter, so every cached count goes.
+     * A count computed concurrently with the write may still land afterwards; the
+     * TTL bounds how long it can be served.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        counts.clear();
+    }
+
+    // The listing's read-only transaction runs on a replica unless the caller is pinned to the primary
+    private long cached(Key key, LongSupplier exact) {
+        if (!replicas || ReadWriteRoutingDataSource.isPinnedToPrimary()) {
+            return counts.get(key, exact::getAsLong);
+        }
+        Long cached = counts.get(key, Long.class);
+        return cached != null ? cached : exact.getAsLong();
+    }
+
+    private static Key key(UserFilter filter, NameMatch match) {
+        UserFilter normalized = filter != null ? filter : UserFilter.none();
+        // match only changes the result when there is a name to match
+        return new Key(normalized, normalized.name() != null ? match : null);
+    }
+}
@@ -0,0 +1,139 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes every user as NDJSON or CSV in one pass over a database cursor. Rows
+ * are written as they are read, so memory use is the same for ten users or ten
+ * million. The CSV columns are a superset of what {@link UserImportService}
+ * reads, so an export can be imported again.
+ * <p>
+ * An export holds a pooled connection and a transaction until the client has
+ * read the last row, so at most {@code max-concurrent} run at once; callers
+ * {@link #tryReserve() reserve} a slot first and {@link #release() release} it
+ * when the export ends.
+ */
+@Service
+public class UserExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    static final String CSV_HEADER = "id,name,email,phoneNumber,status\n";
+
+    private final UserRepository userRepository;
+    // Flushing after each row would push every line through the container separately
+    private final ObjectWriter userWriter;
+    private final int fetchSize;
+    private final Semaphore slots;
+
+    public UserExportService(UserRepository userRepository, ObjectMapper objectMapper,
+                             @Value("${app.users.export.fetch-size:1000}") int fetchSize,
+                             @Value("${app.users.export.max-concurrent:2}") int maxConcurrent) {
+        this.userRepository = userRepository;
+        this.userWriter = objectMapper.writerFor(UserDTO.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .withRootValueSeparator("\n");
+        this.fetchSize = fetchSize;
+        this.slots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Takes an export slot if one is free, without waiting.
+     */
+    public boolean tryReserve() {
+        return slots.tryAcquire();
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    public void exportUsers(Format format, OutputStream out) throws IOException {
+        try {
+            if (format == Format.CSV) {
+                writeCsv(out);
+            } else {
+                writeNdjson(out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeNdjson(OutputStream out) throws IOException {
+        try (JsonGenerator generator = userWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            boolean[] any = new boolean[1];
+            userRepository.forEachDto(fetchSize, user -> {
+                try {
+                    userWriter.writeValue(generator, user);
+                    any[0] = true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // The separator goes between values, so end the last line too
+            if (any[0]) {
+                generator.writeRaw('\n');
+            }
+        }
+        out.flush();
+    }
+
+    private void writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        userRepository.forEachDto(fetchSize, user -> {
+            try {
+                writer.write(String.valueOf(user.getId()));
+                writer.write(',');
+                writer.write(csvField(user.getName()));
+                writer.write(',');
+                writer.write(csvField(user.getEmail()));
+                writer.write(',');
+                writer.write(csvField(user.getPhoneNumber()));
+                writer.write(',');
+                writer.write(user.getStatus() != null ? user.getStatus().name() : "");
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Quotes the value when it holds a comma, quote or line break, the inverse of
+     * {@link UserImportService#parseCsvLine}.
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
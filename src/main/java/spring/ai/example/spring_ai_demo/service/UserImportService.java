@@ -0,0 +1,244 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams NDJSON or CSV user records from a request body into the database in
+ * fixed-size chunks. Each chunk costs one duplicate-email query and one JDBC
+ * batch, and a result line per input record is written as soon as its chunk
+ * is done.
+ */
+@Service
+public class UserImportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(long line, Status status, Long id, String email, List<String> errors) {
+    }
+
+    private record Row(long line, UserDTO user, String parseError) {
+    }
+
+    private final UserRepository userRepository;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter resultWriter;
+    private final int batchSize;
+
+    public UserImportService(UserRepository userRepository, Validator validator,
+                             ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                             @Value("${app.users.import.batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.resultWriter = objectMapper.writerFor(Result.class);
+        this.batchSize = batchSize;
+    }
+
+    public void importUsers(InputStream body, Format format, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String[] header = null;
+        List<Row> chunk = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = parseCsvLine(line).toArray(String[]::new);
+                continue;
+            }
+            chunk.add(format == Format.CSV ? readCsv(lineNumber, header, line) : readJson(lineNumber, line));
+            if (chunk.size() == batchSize) {
+                writeResults(importChunk(chunk), out);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeResults(importChunk(chunk), out);
+        }
+    }
+
+    private List<Result> importChunk(List<Row> rows) {
+        List<Result> results = new ArrayList<>(rows.size());
+        Map<Row, Integer> slots = new HashMap<>();
+        List<Row> valid = new ArrayList<>();
+        Set<String> emailsInChunk = new HashSet<>();
+        for (Row row : rows) {
+            results.add(null);
+            int slot = results.size() - 1;
+            List<String> errors = validate(row);
+            if (!errors.isEmpty()) {
+                results.set(slot, new Result(row.line(), Status.INVALID, null, null, errors));
+            } else if (!emailsInChunk.add(row.user().getEmail())) {
+                results.set(slot, duplicate(row));
+            } else {
+                valid.add(row);
+                slots.put(row, slot);
+            }
+        }
+
+        Set<String> existing = valid.isEmpty()
+            ? Set.of()
+            : userRepository.findExistingEmails(emailsInChunk);
+        List<Row> toInsert = new ArrayList<>(valid.size());
+        for (Row row : valid) {
+            if (existing.contains(row.user().getEmail())) {
+                results.set(slots.get(row), duplicate(row));
+            } else {
+                toInsert.add(row);
+            }
+        }
+
+        List<Long> ids = userRepository.insertAllIgnoringDuplicates(
+            toInsert.stream().map(row -> toEntity(row.user())).toList());
+        for (int i = 0; i < toInsert.size(); i++) {
+            Row row = toInsert.get(i);
+            Long id = ids.get(i);
+            // A null id means the email was taken concurrently after the lookup
+            if (id == null) {
+                results.set(slots.get(row), duplicate(row));
+            } else {
+                results.set(slots.get(row), new Result(row.line(), Status.CREATED, id, row.user().getEmail(), null));
+                eventPublisher.publishEvent(UserChangedEvent.created(id, row.user().getEmail()));
+            }
+        }
+        return results;
+    }
+
+    private List<String> validate(Row row) {
+        if (row.parseError() != null) {
+            return List.of(row.parseError());
+        }
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<UserDTO> violation : validator.validate(row.user())) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return errors;
+    }
+
+    private void writeResults(List<Result> results, OutputStream out) throws IOException {
+        for (Result result : results) {
+            out.write(resultWriter.writeValueAsBytes(result));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private Row readJson(long lineNumber, String line) {
+        try {
+            return new Row(lineNumber, objectMapper.readValue(line, UserDTO.class), null);
+        } catch (JsonProcessingException e) {
+            return new Row(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Row readCsv(long lineNumber, String[] header, String line) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != header.length) {
+            return new Row(lineNumber, null,
+                "Expected " + header.length + " columns but found " + values.size());
+        }
+        UserDTO user = new UserDTO();
+        for (int i = 0; i < header.length; i++) {
+            String value = values.get(i).isEmpty() ? null : values.get(i);
+            switch (header[i].trim()) {
+                case "name" -> user.setName(value);
+                case "email" -> user.setEmail(value);
+                case "phoneNumber" -> user.setPhoneNumber(value);
+                case "status" -> {
+                    try {
+                        user.setStatus(value != null ? User.UserStatus.valueOf(value) : null);
+                    } catch (IllegalArgumentException e) {
+                        return new Row(lineNumber, null, "Unknown status: " + value);
+                    }
+                }
+                default -> {
+                    // unknown columns are ignored
+                }
+            }
+        }
+        return new Row(lineNumber, user, null);
+    }
+
+    /**
+     * Splits one RFC 4180 record. Quoted fields may contain commas and doubled
+     * quotes; embedded line breaks are not supported.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        values.add(field.toString());
+        return values;
+    }
+
+    private static Result duplicate(Row row) {
+        return new Result(row.line(), Status.DUPLICATE, null, row.user().getEmail(), null);
+    }
+
+    private static User toEntity(UserDTO dto) {
+        User user = new User();
+        user.setName(dto.getName());
+        user.setEmail(dto.getEmail());
+        user.setPhoneNumber(dto.getPhoneNumber());
+        user.setStatus(dto.getStatus() != null ? dto.getStatus() : User.UserStatus.ACTIVE);
+        return user;
+    }
+}
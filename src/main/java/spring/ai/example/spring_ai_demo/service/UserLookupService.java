@@ -0,0 +1,191 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import spring.ai.example.spring_ai_demo.cache.SingleFlight;
+import spring.ai.example.spring_ai_demo.cache.UserCache;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads users by id through the {@link UserCache}, with cache misses answered
+ * by one {@code id = any(?)} query per batch instead of one query per id.
+ * <p>
+ * {@link #findAll} batches the ids of one request. {@link #findById} batches
+ * across requests, DataLoader style: the first miss opens a batch and waits up
+ * to {@code batch-window} (or until {@code max-batch-size} ids have joined) before
+ * running the query for every id that joined meanwhile. A zero window turns
+ * this off.
+ * <p>
+ * Misses are read from the primary even when replicas are configured: what
+ * they load stays cached for every caller, and a row read from a lagging
+ * replica right after a write would put the old version back until it expires.
+ * A batch query starts after its last caller joined, so it also sees the writes
+ * of callers pinned to the primary.
+ */
+@Service
+public class UserLookupService {
+
+    public static final int MAX_IDS = 500;
+
+    public enum Status {
+        FOUND, NOT_FOUND
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(Long id, Status status, UserDTO user) {
+
+        static Result of(Long id, UserDTO user) {
+            return user != null ? new Result(id, Status.FOUND, user) : new Result(id, Status.NOT_FOUND, null);
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final SingleFlight singleFlight;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private Batch open;
+
+    public UserLookupService(UserRepository userRepository, UserCache userCache, SingleFlight singleFlight,
+                             ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${app.users.lookup.batch-window:2ms}") Duration window,
+                             @Value("${app.users.lookup.max-batch-size:100}") int maxBatchSize) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.singleFlight = singleFlight;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSizes = DistributionSummary.builder("user.lookup.batch.size")
+            .description("Ids per coalesced single-user lookup query")
+            .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    /**
+     * Concurrent misses for the same id share one read through {@link SingleFlight};
+     * misses for different ids are batched.
+     */
+    public Optional<UserDTO> findById(Long id) {
+        return userCache.findById(id, key -> singleFlight.execute("findUserById", key,
+            () -> windowNanos > 0
+                ? loadCoalesced(key)
+                : ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findDtoById(key))));
+    }
+
+    /**
+     * One result per distinct id, in the order first requested.
+     *
+     * @throws IllegalArgumentException if an id is null or there are more than {@link #MAX_IDS}
+     */
+    public List<Result> findAll(List<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids.size());
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Null id");
+            }
+            distinct.add(id);
+        }
+        if (distinct.size() > MAX_IDS) {
+            throw new IllegalArgumentException("More than " + MAX_IDS + " ids");
+        }
+        Map<Long, UserDTO> found = userCache.findAllById(distinct,
+            missing -> ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findDtosByIds(missing)));
+        return distinct.stream().map(id -> Result.of(id, found.get(id))).toList();
+    }
+
+    private Optional<UserDTO> loadCoalesced(Long id) {
+        Batch batch;
+        boolean leader;
+        CompletableFuture<Optional<UserDTO>> result;
+        synchronized (lock) {
+            batch = open;
+            leader = batch == null;
+            if (leader) {
+                batch = new Batch();
+                open = batch;
+            }
+            result = batch.pending.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (batch.pending.size() >= maxBatchSize) {
+                close(batch);
+                batch.full.countDown();
+            }
+        }
+        if (leader) {
+            try {
+                batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Load now rather than strand the callers that joined
+                Thread.currentThread().interrupt();
+            }
+            synchronized (lock) {
+                close(batch);
+            }
+            load(batch);
+        }
+        try {
+            Optional<UserDTO> user = result.join();
+            if (!leader) {
+                // The leader's query was run for this caller too
+                DatabaseTime.add(batch.sample);
+            }
+            return user;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    private void load(Batch batch) {
+        batchSizes.record(batch.pending.size());
+        try {
+            Map<Long, UserDTO> found = new HashMap<>();
+            List<Long> ids = List.copyOf(batch.pending.keySet());
+            DatabaseTime.Timed<List<UserDTO>> loaded = DatabaseTime.time(
+                () -> ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findDtosByIds(ids)));
+            for (UserDTO user : loaded.value()) {
+                found.put(user.getId(), user);
+            }
+            batch.sample = loaded.sample();
+            batch.pending.forEach((id, future) -> future.complete(Optional.ofNullable(found.get(id))));
+        } catch (Throwable e) {
+            batch.pending.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    // Once closed no caller can join, so the leader reads pending without the lock
+    private void close(Batch batch) {
+        if (open == batch) {
+            open = null;
+        }
+    }
+
+    private static final class Batch {
+
+        final Map<Long, CompletableFuture<Optional<UserDTO>>> pending = new LinkedHashMap<>();
+        final CountDownLatch full = new CountDownLatch(1);
+        // Written before the futures complete, so callers that joined see it
+        DatabaseTime.Sample sample;
+    }
+}
@@ -0,0 +1,13 @@
+-- Baseline schema, matching what ddl-auto=update produced before migrations
+-- were introduced. Guarded so it is a no-op on databases that already have it.
+create table if not exists users (
+    id           bigserial primary key,
+    name         varchar(255),
+    email        varchar(255) unique,
+    phone_number varchar(255),
+    status       varchar(255) check (status in ('ACTIVE', 'INACTIVE', 'SUSPENDED')),
+    created_at   timestamp(6) not null,
+    updated_at   timestamp(6) not null
+);
+
+create index if not exists idx_users_created_at_id on users (created_at, id);
@@ -0,0 +1,7 @@
+-- Name search: trigram GIN index serves substring (like '%x%') and fuzzy
+-- (word similarity, <%) matching; the text_pattern_ops btree serves prefix
+-- matching in name order.
+create extension if not exists pg_trgm;
+
+create index if not exists idx_users_name_trgm on users using gin (lower(name) gin_trgm_ops);
+create index if not exists idx_users_name_prefix on users (lower(name) text_pattern_ops, id);
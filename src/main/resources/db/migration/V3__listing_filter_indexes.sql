@@ -0,0 +1,10 @@
+-- Composite indexes for the combined listing filters (UserSpecifications).
+-- Equality on status first, then the range/sort column, then id as tiebreaker,
+-- so "status = ? and created_at >= ? order by created_at, id" is a single
+-- index range scan with no sort.
+create index if not exists idx_users_status_created_at_id on users (status, created_at, id);
+create index if not exists idx_users_status_updated_at_id on users (status, updated_at, id);
+create index if not exists idx_users_updated_at_id on users (updated_at, id);
+
+-- Email domain filter: lower(email) like '%@domain'
+create index if not exists idx_users_email_trgm on users using gin (lower(email) gin_trgm_ops);
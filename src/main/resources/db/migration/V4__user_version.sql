@@ -0,0 +1,3 @@
+-- Optimistic-locking version for User (@Version). It also backs the strong ETags
+-- on /api/v1/users, so it must change on every committed update.
+alter table users add column if not exists version bigint not null default 0;
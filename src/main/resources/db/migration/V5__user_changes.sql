@@ -0,0 +1,44 @@
+-- Transactional outbox for /api/v1/users/changes. The trigger records every
+-- committed change to users in the writing transaction itself, whichever code
+-- path made it (single-row SQL, JDBC batches, JPA). Rows start unpublished
+-- (seq null); UserChangeFeed numbers them in commit order, and consumers read
+-- by seq, so a change that commits late is never skipped by a cursor.
+create table if not exists user_changes (
+    id         bigint generated always as identity primary key,
+    seq        bigint unique,
+    user_id    bigint       not null,
+    type       varchar(10)  not null check (type in ('CREATED', 'UPDATED', 'DELETED')),
+    version    bigint,
+    payload    jsonb        not null,
+    changed_at timestamp(6) not null default localtimestamp
+);
+
+create index if not exists idx_user_changes_unpublished on user_changes (id) where seq is null;
+create index if not exists idx_user_changes_published_at on user_changes (changed_at) where seq is not null;
+
+create or replace function record_user_change() returns trigger
+language plpgsql as $$
+begin
+    if tg_op = 'DELETE' then
+        insert into user_changes (user_id, type, version, payload)
+        values (old.id, 'DELETED', old.version, jsonb_build_object('id', old.id, 'email', old.email));
+        return old;
+    end if;
+    insert into user_changes (user_id, type, version, payload)
+    values (new.id, case tg_op when 'INSERT' then 'CREATED' else 'UPDATED' end, new.version,
+            jsonb_build_object('id', new.id, 'name', new.name, 'email', new.email,
+                               'phoneNumber', new.phone_number, 'status', new.status));
+    return new;
+end
+$$;
+
+drop trigger if exists users_record_change on users;
+create trigger users_record_change
+    after insert or delete on users
+    for each row execute function record_user_change();
+
+-- An update that leaves the row identical is not a change
+drop trigger if exists users_record_update on users;
+create trigger users_record_update
+    after update on users
+    for each row when (old.* is distinct from new.*) execute function record_user_change();
@@ -0,0 +1,89 @@
+-- Soft delete: DELETE /api/v1/users/{id} sets deleted_at instead of removing the
+-- row, and every read filters on deleted_at is null (the @SQLRestriction on User,
+-- and the same predicate in the hand-written SQL). UserArchiveService later moves
+-- deleted rows, and users inactive for long, to users_archive in small batches.
+alter table users add column if not exists deleted_at timestamp(6);
+
+-- Email is unique among live users only, so the address of a deleted user can
+-- sign up again. ON CONFLICT (email) WHERE deleted_at IS NULL infers this index.
+-- The old constraint is users_email_key from V1, or a generated name on
+-- databases that ddl-auto=update created.
+do $$
+declare
+    constraint_name text;
+begin
+    for constraint_name in
+        select c.conname from pg_constraint c
+        join pg_attribute a on a.attrelid = c.conrelid and a.attname = 'email'
+        where c.conrelid = 'users'::regclass and c.contype = 'u' and c.conkey = array[a.attnum]
+    loop
+        execute format('alter table users drop constraint %I', constraint_name);
+    end loop;
+end
+$$;
+
+create unique index if not exists idx_users_email_live on users (email) where deleted_at is null;
+
+-- The listing and search indexes cover live rows only: deleted rows neither
+-- bloat them nor get visited and discarded by queries that always exclude them.
+drop index if exists idx_users_created_at_id;
+create index idx_users_created_at_id on users (created_at, id) where deleted_at is null;
+drop index if exists idx_users_name_trgm;
+create index idx_users_name_trgm on users using gin (lower(name) gin_trgm_ops) where deleted_at is null;
+drop index if exists idx_users_name_prefix;
+create index idx_users_name_prefix on users (lower(name) text_pattern_ops, id) where deleted_at is null;
+drop index if exists idx_users_status_created_at_id;
+create index idx_users_status_created_at_id on users (status, created_at, id) where deleted_at is null;
+drop index if exists idx_users_status_updated_at_id;
+create index idx_users_status_updated_at_id on users (status, updated_at, id) where deleted_at is null;
+drop index if exists idx_users_updated_at_id;
+create index idx_users_updated_at_id on users (updated_at, id) where deleted_at is null;
+drop index if exists idx_users_email_trgm;
+create index idx_users_email_trgm on users using gin (lower(email) gin_trgm_ops) where deleted_at is null;
+
+-- findByStatus in id order (the default keyset sort): one range scan per status
+create index if not exists idx_users_status_id on users (status, id) where deleted_at is null;
+
+-- Deleted rows awaiting archival; stays as small as the backlog
+create index if not exists idx_users_deleted_at on users (deleted_at) where deleted_at is not null;
+
+create table if not exists users_archive (
+    id           bigint primary key,
+    name         varchar(255),
+    email        varchar(255),
+    phone_number varchar(255),
+    status       varchar(255),
+    created_at   timestamp(6) not null,
+    updated_at   timestamp(6) not null,
+    version      bigint       not null,
+    deleted_at   timestamp(6),
+    archived_at  timestamp(6) not null default localtimestamp
+);
+
+-- A soft delete is what consumers of the change feed see as DELETED. Removing an
+-- already deleted row during archival is not a change; archiving a live
+-- (inactive) user is a delete.
+create or replace function record_user_change() returns trigger
+language plpgsql as $$
+begin
+    if tg_op = 'DELETE' then
+        if old.deleted_at is null then
+            insert into user_changes (user_id, type, version, payload)
+            values (old.id, 'DELETED', old.version, jsonb_build_object('id', old.id, 'email', old.email));
+        end if;
+        return old;
+    end if;
+    if tg_op = 'UPDATE' and new.deleted_at is not null then
+        if old.deleted_at is null then
+            insert into user_changes (user_id, type, version, payload)
+            values (new.id, 'DELETED', new.version, jsonb_build_object('id', new.id, 'email', new.email));
+        end if;
+        return new;
+    end if;
+    insert into user_changes (user_id, type, version, payload)
+    values (new.id, case tg_op when 'INSERT' then 'CREATED' else 'UPDATED' end, new.version,
+            jsonb_build_object('id', new.id, 'name', new.name, 'email', new.email,
+                               'phoneNumber', new.phone_number, 'status', new.status));
+    return new;
+end
+$$;
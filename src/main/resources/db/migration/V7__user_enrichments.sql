@@ -0,0 +1,10 @@
+-- Output of UserEnricher: one row per user, replaced when the user's name or
+-- email changes. content_hash identifies the input the row was computed from,
+-- so an update that leaves both alone is never sent to the model again.
+create table if not exists user_enrichments (
+    user_id         bigint primary key references users (id) on delete cascade,
+    content_hash    varchar(64)  not null,
+    normalized_name varchar(255),
+    category        varchar(20)  not null check (category in ('PERSON', 'BUSINESS', 'TEST', 'UNKNOWN')),
+    enriched_at     timestamp(6) not null default localtimestamp
+);
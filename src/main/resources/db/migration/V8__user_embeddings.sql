@@ -0,0 +1,10 @@
+-- Vectors behind UserSemanticIndex, so a restart rebuilds the in-memory index
+-- without re-embedding everyone. content_hash identifies the text the vector
+-- was computed from; a user whose text still hashes to it is not embedded again.
+-- embedding holds the unit vector as big-endian float4s.
+create table if not exists user_embeddings (
+    user_id      bigint primary key references users (id) on delete cascade,
+    content_hash varchar(64)  not null,
+    embedding    bytea        not null,
+    embedded_at  timestamp(6) not null default localtimestamp
+);
@@ -0,0 +1,190 @@
+package spring.ai.example.spring_ai_demo.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 20;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void shouldRunOneLoadForConcurrentIdenticalReads() throws Exception {
+        SingleFlight singleFlight = singleFlight(Duration.ofSeconds(10));
+
+        List<Future<String>> results = callConcurrently(singleFlight, "hot", this::blockingLoad);
+        awaitWaiters();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("loaded hot");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("executed")).isEqualTo(1);
+        assertThat(count("shared")).isEqualTo(CALLERS - 1);
+        assertThat(meterRegistry.get("user.reads.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldCreditLeadersDatabaseTimeToEveryWaiter() throws Exception {
+        SingleFlight singleFlight = singleFlight(Duration.ofSeconds(10));
+
+        List<Future<DatabaseTime.Sample>> samples = callConcurrently(() -> {
+            DatabaseTime.start();
+            singleFlight.execute("read", "hot", () -> {
+                blockingLoad();
+                DatabaseTime.add(new DatabaseTime.Sample(0, 80_000_000));
+                return "loaded hot";
+            });
+            return DatabaseTime.stop();
+        });
+        awaitWaiters();
+        release.countDown();
+
+        for (Future<DatabaseTime.Sample> sample : samples) {
+            assertThat(sample.get(5, TimeUnit.SECONDS).slowestStatementNanos()).isEqualTo(80_000_000);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldShareFailureWithEveryWaiter() throws Exception {
+        SingleFlight singleFlight = singleFlight(Duration.ofSeconds(10));
+
+        List<Future<String>> results = callConcurrently(singleFlight, "hot", () -> {
+            blockingLoad();
+            throw new IllegalStateException("database down");
+        });
+        awaitWaiters();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldLoadItselfOnceWaitRunsOut() throws Exception {
+        SingleFlight singleFlight = singleFlight(Duration.ofMillis(100));
+        Future<String> slow = callers.submit(() -> singleFlight.execute("read", "hot", this::blockingLoad));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        String result = singleFlight.execute("read", "hot", () -> "own load");
+
+        assertThat(result).isEqualTo("own load");
+        assertThat(count("timed_out")).isEqualTo(1);
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("loaded hot");
+    }
+
+    @Test
+    void shouldNotShareAcrossKeysOrAfterCompletion() {
+        SingleFlight singleFlight = singleFlight(Duration.ofSeconds(1));
+
+        singleFlight.execute("read", 1L, loads::incrementAndGet);
+        singleFlight.execute("read", 1L, loads::incrementAndGet);
+        singleFlight.execute("other", 1L, loads::incrementAndGet);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void shouldBypassForCallersPinnedToPrimary() throws Exception {
+        SingleFlight singleFlight = singleFlight(Duration.ofSeconds(10));
+        Future<String> unpinned = callers.submit(() -> singleFlight.execute("read", "hot", this::blockingLoad));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ReadWriteRoutingDataSource.pinToPrimary();
+        try {
+            assertThat(singleFlight.execute("read", "hot", () -> "from primary")).isEqualTo("from primary");
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+        }
+        assertThat(count("bypassed")).isEqualTo(1);
+        release.countDown();
+        unpinned.get(5, TimeUnit.SECONDS);
+    }
+
+    private String blockingLoad() {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "loaded hot";
+    }
+
+    private <T> List<Future<T>> callConcurrently(SingleFlight singleFlight, String key, Supplier<T> loader) {
+        return callConcurrently(() -> singleFlight.execute("read", key, loader));
+    }
+
+    private <T> List<Future<T>> callConcurrently(Callable<T> call) {
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> {
+                start.await();
+                return call.call();
+            }));
+        }
+        return results;
+    }
+
+    // Waiters are parked on the leader's future; give every caller time to get there
+    private void awaitWaiters() throws InterruptedException {
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(200);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("user.reads").tags("query", "read", "outcome", outcome).counter().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SingleFlight singleFlight(Duration maxWait) {
+        ObjectProvider<MeterRegistry> registry = mock(ObjectProvider.class);
+        when(registry.getIfAvailable(any(Supplier.class))).thenReturn(meterRegistry);
+        return new SingleFlight(registry, maxWait);
+    }
+}
@@ -0,0 +1,114 @@
+package spring.ai.example.spring_ai_demo.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTest {
+
+    private UserCache userCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(new ConcurrentMapCacheManager(UserCache.BY_ID, UserCache.BY_EMAIL));
+        loads.set(0);
+    }
+
+    @Test
+    void shouldLoadByIdOnlyOnce() {
+        userCache.findById(1L, this::load);
+        Optional<UserDTO> second = userCache.findById(1L, this::load);
+
+        assertThat(second).map(UserDTO::getEmail).contains("user1@example.com");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldEvictOnUpdate() {
+        userCache.findById(1L, this::load);
+
+        userCache.onUserChanged(UserChangedEvent.updated(1L, "new@example.com", "user1@example.com"));
+
+        assertThat(userCache.emailCached("user1@example.com")).isFalse();
+        userCache.findById(1L, this::load);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldEvictOnDelete() {
+        userCache.findById(1L, this::load);
+
+        userCache.onUserChanged(UserChangedEvent.deleted(1L, "user1@example.com"));
+
+        userCache.findById(1L, this::load);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldLoadOnlyUncachedIdsInOneCall() {
+        userCache.findById(1L, this::load);
+        List<Collection<Long>> calls = new ArrayList<>();
+
+        Map<Long, UserDTO> found = userCache.findAllById(List.of(1L, 2L, 3L), ids -> {
+            calls.add(List.copyOf(ids));
+            return ids.stream().filter(id -> id != 3L).map(id -> load(id).orElseThrow()).toList();
+        });
+
+        assertThat(found).containsOnlyKeys(1L, 2L);
+        assertThat(calls).containsExactly(List.of(2L, 3L));
+        assertThat(userCache.findAllById(List.of(1L, 2L), ids -> {
+            throw new AssertionError("loaded " + ids);
+        })).containsOnlyKeys(1L, 2L);
+    }
+
+    @Test
+    void shouldNotCacheLoadOverlappingAnEviction() {
+        // The row is read, then a change commits and evicts before the load returns
+        Optional<UserDTO> stale = userCache.findById(1L, id -> {
+            Optional<UserDTO> read = load(id);
+            userCache.onUserChanged(UserChangedEvent.updated(1L, "new@example.com", "user1@example.com"));
+            return read;
+        });
+
+        assertThat(stale).isPresent();
+        assertThat(userCache.emailCached("user1@example.com")).isFalse();
+        userCache.findById(1L, this::load);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldNotCacheBatchRowsOverlappingAnEviction() {
+        userCache.findAllById(List.of(1L, 2L), ids -> {
+            List<UserDTO> read = ids.stream().map(id -> load(id).orElseThrow()).toList();
+            userCache.onUserChanged(UserChangedEvent.deleted(2L, "user2@example.com"));
+            return read;
+        });
+
+        List<Collection<Long>> calls = new ArrayList<>();
+        userCache.findAllById(List.of(1L, 2L), ids -> {
+            calls.add(List.copyOf(ids));
+            return List.of();
+        });
+        assertThat(calls).containsExactly(List.of(2L));
+    }
+
+    private Optional<UserDTO> load(Long id) {
+        loads.incrementAndGet();
+        UserDTO dto = new UserDTO();
+        dto.setId(id);
+        dto.setEmail("user" + id + "@example.com");
+        return Optional.of(dto);
+    }
+}
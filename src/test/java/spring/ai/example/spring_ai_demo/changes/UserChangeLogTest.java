@@ -0,0 +1,100 @@
+package spring.ai.example.spring_ai_demo.changes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import spring.ai.example.spring_ai_demo.config.TestContainersConfig;
+import spring.ai.example.spring_ai_demo.config.TestJpaConfig;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({TestJpaConfig.class, UserChangeLog.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserChangeLogTest extends TestContainersConfig {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeLog changeLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long before;
+
+    // Other test classes commit users, so publish what they left and start from there.
+    // Relays in cached application contexts publish too; keep them out until rollback.
+    @BeforeEach
+    void publishEarlierChanges() {
+        jdbcTemplate.queryForObject("select pg_advisory_xact_lock(?)::text", String.class, UserChangeLog.PUBLISH_LOCK);
+        while (changeLog.publishPending(1000) > 0) {
+        }
+        before = changeLog.latestSeq();
+    }
+
+    @Test
+    void shouldRecordEveryWriteAndPublishInOrder() {
+        User user = userRepository.saveAndFlush(user("John Doe", "john@example.com"));
+        user.setStatus(User.UserStatus.SUSPENDED);
+        userRepository.saveAndFlush(user);
+        userRepository.deleteReturningEmail(user.getId(), null);
+
+        assertThat(changeLog.readAfter(before, 10)).isEmpty();
+        changeLog.publishPending(100);
+
+        List<UserChange> changes = changeLog.readAfter(before, 100).stream()
+            .filter(change -> change.userId() == user.getId())
+            .toList();
+        assertThat(changes).extracting(UserChange::type).containsExactly(
+            UserChangedEvent.Type.CREATED, UserChangedEvent.Type.UPDATED, UserChangedEvent.Type.DELETED);
+        assertThat(changes).extracting(UserChange::seq).isSorted().doesNotHaveDuplicates();
+        assertThat(changes.get(1).user()).contains("\"status\": \"SUSPENDED\"");
+        assertThat(changes.get(2).user()).contains("\"email\": \"john@example.com\"").doesNotContain("name");
+    }
+
+    @Test
+    void shouldDeleteOnlyPublishedChangesPastRetention() {
+        userRepository.saveAndFlush(user("John Doe", "john@example.com"));
+        changeLog.publishPending(100);
+        userRepository.saveAndFlush(user("Jane Doe", "jane@example.com"));
+
+        while (changeLog.deletePublishedBefore(LocalDateTime.now().plusMinutes(1), 1000) > 0) {
+        }
+        changeLog.publishPending(100);
+
+        assertThat(changeLog.readAfter(before, 100)).extracting(UserChange::user)
+            .singleElement().asString().contains("jane@example.com");
+    }
+
+    @Test
+    void shouldNotRecordArchivalOfDeletedUser() {
+        User user = userRepository.saveAndFlush(user("John Doe", "john@example.com"));
+        userRepository.deleteReturningEmail(user.getId(), null);
+        userRepository.archiveDeleted(LocalDateTime.now().plusMinutes(1), 1000);
+        changeLog.publishPending(100);
+
+        assertThat(changeLog.readAfter(before, 100)).extracting(UserChange::type).containsExactly(
+            UserChangedEvent.Type.CREATED, UserChangedEvent.Type.DELETED);
+    }
+
+    private static User user(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,93 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import org.junit.jupiter.api.Test;
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final DatabaseTime.Sample FAST = new DatabaseTime.Sample(1_000_000, 5_000_000);
+    private static final DatabaseTime.Sample POOL_WAIT = new DatabaseTime.Sample(200_000_000, 5_000_000);
+    private static final DatabaseTime.Sample SLOW_STATEMENT = new DatabaseTime.Sample(1_000_000, 900_000_000);
+
+    @Test
+    void shouldRejectBeyondLimitWithoutWaiting() {
+        AdaptiveConcurrencyLimit limit = limit(2);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release(FAST);
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldBackOffOnConnectionWaitOrSlowStatementDownToMinimum() {
+        AdaptiveConcurrencyLimit limit = limit(10);
+
+        limit.tryAcquire();
+        limit.release(POOL_WAIT);
+        assertThat(limit.limit()).isEqualTo(9);
+        limit.tryAcquire();
+        limit.release(SLOW_STATEMENT);
+        assertThat(limit.limit()).isEqualTo(8);
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(POOL_WAIT);
+        }
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldGrowAboutOncePerLimitOfFastRequestsWhileInUse() {
+        AdaptiveConcurrencyLimit limit = limit(4);
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire();
+        }
+
+        // Three of four slots busy: each completion is replaced by a new request
+        for (int i = 0; i < 5; i++) {
+            limit.release(FAST);
+            limit.tryAcquire();
+        }
+
+        assertThat(limit.limit()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldNotGrowWhileMostlyIdle() {
+        AdaptiveConcurrencyLimit limit = limit(10);
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(FAST);
+        }
+
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldNotAdjustForReleaseWithoutSample() {
+        AdaptiveConcurrencyLimit limit = limit(2);
+
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release();
+            limit.release();
+        }
+
+        assertThat(limit.inFlight()).isZero();
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    private static AdaptiveConcurrencyLimit limit(int initial) {
+        return new AdaptiveConcurrencyLimit(initial, 2, 100, Duration.ofMillis(50), Duration.ofMillis(250), 0.9);
+    }
+}
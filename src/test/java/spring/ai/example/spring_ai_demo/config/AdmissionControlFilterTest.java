@@ -0,0 +1,114 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import spring.ai.example.spring_ai_demo.jdbc.InstrumentedDataSource;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Counter rejected = meterRegistry.counter("http.admission.rejected");
+
+    @Test
+    void shouldFailFastWithRetryAfterWhenLimitReached() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+            1, 1, 10, Duration.ofMillis(50), Duration.ofMillis(250), 0.9);
+        AdmissionControlFilter filter = new AdmissionControlFilter(limit, Duration.ofMillis(1500), rejected);
+        limit.tryAcquire();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/users"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(chain.getRequest()).isNull();
+        assertThat(rejected.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReleaseSlotWhenRequestCompletes() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+            1, 1, 10, Duration.ofMillis(50), Duration.ofMillis(250), 0.9);
+        AdmissionControlFilter filter = new AdmissionControlFilter(limit, Duration.ofSeconds(1), rejected);
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/users/1"), response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+        assertThat(limit.inFlight()).isZero();
+        assertThat(rejected.count()).isZero();
+    }
+
+    @Test
+    void shouldBackOffWhenRoutedConnectionCheckoutWaits() throws Exception {
+        // A one-connection pool behind the lazy routing proxy, as with replicas configured
+        Semaphore pool = new Semaphore(1);
+        DataSource primary = mock(DataSource.class);
+        when(primary.getConnection()).thenAnswer(invocation -> {
+            pool.acquire();
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+            when(connection.createStatement()).thenAnswer(statement -> mock(Statement.class));
+            doAnswer(close -> {
+                pool.release();
+                return null;
+            }).when(connection).close();
+            return connection;
+        });
+        DataSource dataSource = new InstrumentedDataSource(
+            new ReadWriteRoutingDataSource(primary, List.of()), null);
+
+        CountDownLatch held = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try (Connection connection = primary.getConnection()) {
+                held.countDown();
+                Thread.sleep(200);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        held.await();
+
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+            10, 1, 20, Duration.ofMillis(50), Duration.ofMillis(250), 0.9);
+        AdmissionControlFilter filter = new AdmissionControlFilter(limit, Duration.ofSeconds(1), rejected);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/users/1"), response, (request, ignored) -> {
+            // The pool is only reached here, on the first statement
+            try (Connection connection = dataSource.getConnection()) {
+                connection.createStatement();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.join();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(limit.limit()).isEqualTo(9);
+    }
+}
@@ -0,0 +1,53 @@
+package spring.ai.example.spring_ai_demo.config;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+
+class SerializationTimingAdviceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldTimeJsonWritesWithoutBypassingJsonView() throws Exception {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", meterRegistry);
+        SerializationTimingAdvice advice = new SerializationTimingAdvice(beans.getBeanProvider(MeterRegistry.class));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SummaryController())
+            .setControllerAdvice(advice)
+            .addInterceptors(advice)
+            .build();
+
+        mockMvc.perform(get("/summary"))
+            .andExpect(content().json("{\"name\":\"Ada\"}", true));
+
+        assertThat(meterRegistry.get("http.server.serialization").tag("type", "Summary").timer().count())
+            .isEqualTo(1);
+    }
+
+    @RestController
+    static class SummaryController {
+
+        @GetMapping("/summary")
+        @JsonView(Summary.Public.class)
+        Summary summary() {
+            return new Summary("Ada", "secret");
+        }
+    }
+
+    record Summary(@JsonView(Public.class) String name, String internal) {
+
+        interface Public {
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import spring.ai.example.spring_ai_demo.cache.SingleFlight;
+import spring.ai.example.spring_ai_demo.cache.UserCache;
+import spring.ai.example.spring_ai_demo.config.CacheConfig;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.service.UserExportService;
+import spring.ai.example.spring_ai_demo.service.UserImportService;
+import spring.ai.example.spring_ai_demo.service.UserLookupService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserBulkController.class)
+@Import({UserImportService.class, UserExportService.class, UserLookupService.class, UserCache.class,
+        CacheConfig.class, SingleFlight.class})
+class UserBulkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @Test
+    void shouldImportNdjsonAndReportEachLine() throws Exception {
+        when(userRepository.findExistingEmails(any())).thenReturn(Set.of("taken@example.com"));
+        when(userRepository.insertAllIgnoringDuplicates(anyList())).thenReturn(List.of(10L));
+
+        String body = """
+            {"name":"New User","email":"new@example.com"}
+            {"name":"Taken User","email":"taken@example.com"}
+            {"name":"X","email":"not-an-email"}
+            {"name":"Again","email":"new@example.com"}
+            """;
+
+        mockMvc.perform(post("/api/v1/users:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("{\"line\":1,\"status\":\"CREATED\",\"id\":10")))
+                .andExpect(content().string(containsString("{\"line\":2,\"status\":\"DUPLICATE\"")))
+                .andExpect(content().string(containsString("{\"line\":3,\"status\":\"INVALID\"")))
+                .andExpect(content().string(containsString("{\"line\":4,\"status\":\"DUPLICATE\"")));
+
+        verify(userRepository, times(1)).findExistingEmails(any());
+        verify(userRepository, times(1)).insertAllIgnoringDuplicates(argThat(users -> users.size() == 1));
+    }
+
+    @Test
+    void shouldImportCsvWithQuotedFields() throws Exception {
+        when(userRepository.findExistingEmails(any())).thenReturn(Set.of());
+        when(userRepository.insertAllIgnoringDuplicates(anyList())).thenReturn(Arrays.asList(1L, null));
+
+        String body = """
+            name,email,phoneNumber,status
+            "Doe, Jane",jane@example.com,+1234567890,ACTIVE
+            John,john@example.com,,INACTIVE
+            """;
+
+        mockMvc.perform(post("/api/v1/users:bulk")
+                .contentType("text/csv")
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("{\"line\":2,\"status\":\"CREATED\",\"id\":1")))
+                .andExpect(content().string(containsString("{\"line\":3,\"status\":\"DUPLICATE\"")));
+
+        verify(userRepository).insertAllIgnoringDuplicates(argThat(users ->
+            users.get(0).getName().equals("Doe, Jane")
+                && users.get(1).getStatus() == User.UserStatus.INACTIVE));
+    }
+
+    @Test
+    void shouldExportNdjson() throws Exception {
+        givenUsers(new UserDTO(1L, "Jane Doe", "jane@example.com", null, User.UserStatus.ACTIVE),
+            new UserDTO(2L, "John Doe", "john@example.com", "+1234567890", User.UserStatus.INACTIVE));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users:export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                    {"id":1,"name":"Jane Doe","email":"jane@example.com","phoneNumber":null,"status":"ACTIVE"}
+                    {"id":2,"name":"John Doe","email":"john@example.com","phoneNumber":"+1234567890","status":"INACTIVE"}
+                    """));
+    }
+
+    @Test
+    void shouldExportGzippedCsvWithQuotedFields() throws Exception {
+        givenUsers(new UserDTO(1L, "Doe, \"JD\" Jane", "jane@example.com", null, User.UserStatus.ACTIVE));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users:export")
+                .param("format", "CSV")
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", containsString("users.csv")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("""
+                id,name,email,phoneNumber,status
+                1,"Doe, ""JD"" Jane",jane@example.com,,ACTIVE
+                """);
+        }
+    }
+
+    @Test
+    void shouldNotGzipWhenRefusedByQValue() throws Exception {
+        givenUsers(new UserDTO(1L, "Jane Doe", "jane@example.com", null, User.UserStatus.ACTIVE));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users:export")
+                .header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string(containsString("jane@example.com")));
+    }
+
+    @Test
+    void shouldParseAcceptEncodingQValues() {
+        assertThat(UserBulkController.acceptsGzip("gzip, deflate")).isTrue();
+        assertThat(UserBulkController.acceptsGzip("deflate;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(UserBulkController.acceptsGzip("*")).isTrue();
+        assertThat(UserBulkController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(UserBulkController.acceptsGzip("gzip; q=0.000, *")).isFalse();
+        assertThat(UserBulkController.acceptsGzip("*;q=0")).isFalse();
+        assertThat(UserBulkController.acceptsGzip("br, deflate")).isFalse();
+        assertThat(UserBulkController.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    void shouldRejectExportsBeyondConcurrencyCap() throws Exception {
+        givenUsers(new UserDTO(1L, "Jane Doe", "jane@example.com", null, User.UserStatus.ACTIVE));
+        assertThat(userExportService.tryReserve()).isTrue();
+        assertThat(userExportService.tryReserve()).isTrue();
+        try {
+            mockMvc.perform(get("/api/v1/users:export"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+            verify(userRepository, never()).forEachDto(anyInt(), any());
+        } finally {
+            userExportService.release();
+        }
+
+        // The freed slot is taken and given back by the export itself
+        for (int i = 0; i < 2; i++) {
+            MvcResult result = mockMvc.perform(get("/api/v1/users:export"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk());
+        }
+        userExportService.release();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenUsers(UserDTO... users) {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> action = invocation.getArgument(1);
+            for (UserDTO user : users) {
+                action.accept(user);
+            }
+            return null;
+        }).when(userRepository).forEachDto(anyInt(), any(Consumer.class));
+    }
+
+    @Test
+    void shouldBatchGetUsersInOneQuery() throws Exception {
+        when(userRepository.findDtosByIds(List.of(2L, 1L))).thenReturn(List.of(
+            new UserDTO(2L, "Second", "second@example.com", null, User.UserStatus.ACTIVE, 0L)));
+
+        mockMvc.perform(post("/api/v1/users:batchGet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[2,1,2]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value("FOUND"))
+                .andExpect(jsonPath("$[0].user.email").value("second@example.com"))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+
+        verify(userRepository, times(1)).findDtosByIds(any());
+    }
+
+    @Test
+    void shouldRejectBatchGetWithoutIds() throws Exception {
+        mockMvc.perform(post("/api/v1/users:batchGet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,null]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/users:batchGet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verify(userRepository, never()).findDtosByIds(any());
+    }
+}
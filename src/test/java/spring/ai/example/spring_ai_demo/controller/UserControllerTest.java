@@ -1,27 +1,57 @@
 package spring.ai.example.spring_ai_demo.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import spring.ai.example.spring_ai_demo.cache.SingleFlight;
+import spring.ai.example.spring_ai_demo.cache.UserCache;
+import spring.ai.example.spring_ai_demo.config.CacheConfig;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserCursor;
 import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.dto.UserPatch;
 import spring.ai.example.spring_ai_demo.model.User;
 import spring.ai.example.spring_ai_demo.repository.UserRepository;
+import spring.ai.example.spring_ai_demo.repository.UserRepositoryCustom;
+import spring.ai.example.spring_ai_demo.service.UserCountService;
+import spring.ai.example.spring_ai_demo.service.UserLookupService;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
+@Import({UserCache.class, CacheConfig.class, UserModelAssembler.class, UserCountService.class, UserLookupService.class,
+        SingleFlight.class})
 class UserControllerTest {
 
     @Autowired
@@ -40,21 +70,17 @@ class UserControllerTest {
         userDTO.setEmail("test@example.com");
         userDTO.setPhoneNumber("+1234567890");
 
-        User savedUser = new User();
-        savedUser.setId(1L);
-        savedUser.setName(userDTO.getName());
-        savedUser.setEmail(userDTO.getEmail());
-        savedUser.setPhoneNumber(userDTO.getPhoneNumber());
-
-        when(userRepository.existsByEmail(any())).thenReturn(false);
-        when(userRepository.save(any())).thenReturn(savedUser);
+        when(userRepository.insertIgnoringDuplicate(any())).thenReturn(Optional.of(new UserDTO(
+                1L, userDTO.getName(), userDTO.getEmail(), userDTO.getPhoneNumber(), User.UserStatus.ACTIVE, 0L)));
 
         mockMvc.perform(post("/api/v1/users")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(userDTO)))
                 .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "http://localhost/api/v1/users/1"))
                 .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.name").value("Test User"));
+                .andExpect(jsonPath("$.name").value("Test User"))
+                .andExpect(jsonPath("$._links.all-users.href").value("http://localhost/api/v1/users"));
     }
 
     @Test
@@ -64,12 +90,14 @@ class UserControllerTest {
         userDTO.setEmail("existing@example.com");
         userDTO.setPhoneNumber("+1234567890");
 
-        when(userRepository.existsByEmail("existing@example.com")).thenReturn(true);
+        when(userRepository.insertIgnoringDuplicate(any())).thenReturn(Optional.empty());
 
         mockMvc.perform(post("/api/v1/users")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(userDTO)))
                 .andExpect(status().isConflict());
+
+        verify(userRepository, never()).save(any());
     }
 
     @Test
@@ -87,29 +115,82 @@ class UserControllerTest {
 
     @Test
     void shouldGetAllUsers() throws Exception {
-        User user = new User();
-        user.setId(1L);
-        user.setName("Test User");
-        user.setEmail("test@example.com");
-        user.setStatus(User.UserStatus.ACTIVE);
+        UserDTO user = new UserDTO(1L, "Test User", "test@example.com", null, User.UserStatus.ACTIVE);
 
-        when(userRepository.findAll(any(Pageable.class)))
+        when(userRepository.findDtos(isNull(), any(Pageable.class), any(LongSupplier.class)))
                 .thenReturn(new PageImpl<>(List.of(user)));
 
-        mockMvc.perform(get("/api/v1/users"))
+        mockMvc.perform(get("/api/v1/users").header("Host", "api.example.com"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$._embedded.userDTOList[0].id").value(1))
-                .andExpect(jsonPath("$._embedded.userDTOList[0].name").value("Test User"));
+                .andExpect(jsonPath("$._embedded.userDTOList[0].name").value("Test User"))
+                .andExpect(jsonPath("$._embedded.userDTOList[0]._links.self.href")
+                        .value("http://api.example.com/api/v1/users/1"))
+                .andExpect(jsonPath("$._embedded.userDTOList[0]._links.update.href")
+                        .value("http://api.example.com/api/v1/users/1"))
+                .andExpect(jsonPath("$._embedded.userDTOList[0]._links.delete.href")
+                        .value("http://api.example.com/api/v1/users/1"));
+    }
+
+    @Test
+    void shouldGetAllUsersAsHalShapedCbor() throws Exception {
+        UserDTO user = new UserDTO(1L, "Test User", "test@example.com", null, User.UserStatus.ACTIVE);
+        when(userRepository.findDtos(isNull(), any(Pageable.class), any(LongSupplier.class)))
+                .thenReturn(new PageImpl<>(List.of(user)));
+
+        byte[] body = mockMvc.perform(get("/api/v1/users").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(page.at("/_embedded/userDTOList/0/name").asText()).isEqualTo("Test User");
+        assertThat(page.at("/_embedded/userDTOList/0/_links/self/href").asText())
+                .isEqualTo("http://localhost/api/v1/users/1");
+        assertThat(page.at("/page/totalElements").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEstimateTotalOfUnfilteredListing() throws Exception {
+        UserDTO user = new UserDTO(1L, "Test User", "test@example.com", null, User.UserStatus.ACTIVE);
+        when(userRepository.findDtos(isNull(), any(Pageable.class), any(LongSupplier.class)))
+                .thenAnswer(invocation -> PageableExecutionUtils.getPage(List.of(user),
+                        invocation.getArgument(1), invocation.getArgument(2)));
+        when(userRepository.estimateCount()).thenReturn(125_000L);
+
+        mockMvc.perform(get("/api/v1/users?size=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count-Strategy", "ESTIMATED"))
+                .andExpect(jsonPath("$.page.totalElements").value(125_000));
+
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    void shouldCountFilteredListingExactlyUnlessAsked() throws Exception {
+        UserDTO user = new UserDTO(1L, "Active User", null, null, User.UserStatus.ACTIVE);
+        when(userRepository.findDtos(ArgumentMatchers.<Specification<User>>notNull(), any(Pageable.class), any(LongSupplier.class)))
+                .thenAnswer(invocation -> PageableExecutionUtils.getPage(List.of(user),
+                        invocation.getArgument(1), invocation.getArgument(2)));
+        when(userRepository.count(ArgumentMatchers.<Specification<User>>any())).thenReturn(42L);
+
+        mockMvc.perform(get("/api/v1/users?status=ACTIVE&size=1"))
+                .andExpect(header().string("X-Total-Count-Strategy", "EXACT"))
+                .andExpect(jsonPath("$.page.totalElements").value(42));
+
+        // No statistics exist per filter, so an estimate is served from the count cache
+        mockMvc.perform(get("/api/v1/users?status=ACTIVE&size=1&count=ESTIMATED"))
+                .andExpect(header().string("X-Total-Count-Strategy", "CACHED"))
+                .andExpect(jsonPath("$.page.totalElements").value(42));
+
+        verify(userRepository, never()).estimateCount();
     }
 
     @Test
     void shouldSearchUsersByName() throws Exception {
-        User user = new User();
-        user.setId(1L);
-        user.setName("John Doe");
-        user.setEmail("john@example.com");
+        UserDTO user = new UserDTO(1L, "John Doe", "john@example.com", null, null);
 
-        when(userRepository.findByNameContainingIgnoreCase(eq("John"), any(Pageable.class)))
+        when(userRepository.searchByName(eq("John"), eq(NameMatch.CONTAINS), any(Pageable.class), any(LongSupplier.class)))
                 .thenReturn(new PageImpl<>(List.of(user)));
 
         mockMvc.perform(get("/api/v1/users?name=John"))
@@ -117,14 +198,26 @@ class UserControllerTest {
                 .andExpect(jsonPath("$._embedded.userDTOList[0].name").value("John Doe"));
     }
 
+    @Test
+    void shouldSearchUsersByNameFuzzyWithoutClientSort() throws Exception {
+        UserDTO user = new UserDTO(1L, "Jon Doe", "jon@example.com", null, null);
+
+        when(userRepository.searchByName(eq("John"), eq(NameMatch.FUZZY), any(Pageable.class), any(LongSupplier.class)))
+                .thenReturn(new PageImpl<>(List.of(user)));
+
+        mockMvc.perform(get("/api/v1/users?name=John&match=FUZZY&sort=email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDTOList[0].name").value("Jon Doe"));
+
+        verify(userRepository).searchByName(eq("John"), eq(NameMatch.FUZZY),
+                argThat(pageable -> pageable.getSort().isUnsorted()), any(LongSupplier.class));
+    }
+
     @Test
     void shouldFilterUsersByStatus() throws Exception {
-        User user = new User();
-        user.setId(1L);
-        user.setName("Active User");
-        user.setStatus(User.UserStatus.ACTIVE);
+        UserDTO user = new UserDTO(1L, "Active User", null, null, User.UserStatus.ACTIVE);
 
-        when(userRepository.findByStatus(eq(User.UserStatus.ACTIVE), any(Pageable.class)))
+        when(userRepository.findDtos(ArgumentMatchers.<Specification<User>>notNull(), any(Pageable.class), any(LongSupplier.class)))
                 .thenReturn(new PageImpl<>(List.of(user)));
 
         mockMvc.perform(get("/api/v1/users?status=ACTIVE"))
@@ -133,13 +226,69 @@ class UserControllerTest {
     }
 
     @Test
-    void shouldGetUserById() throws Exception {
+    void shouldCombineNameWithOtherFilters() throws Exception {
+        UserDTO user = new UserDTO(1L, "John Doe", "john@corp.example", null, User.UserStatus.SUSPENDED);
+
+        when(userRepository.findDtos(ArgumentMatchers.<Specification<User>>notNull(), any(Pageable.class), any(LongSupplier.class)))
+                .thenReturn(new PageImpl<>(List.of(user)));
+
+        mockMvc.perform(get("/api/v1/users")
+                .param("name", "john")
+                .param("status", "SUSPENDED")
+                .param("emailDomain", "corp.example")
+                .param("createdAfter", "2024-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDTOList[0].name").value("John Doe"));
+
+        verify(userRepository, never()).searchByName(any(), any(), any(), any(LongSupplier.class));
+    }
+
+    @Test
+    void shouldGetFirstWindowWithNextLink() throws Exception {
         User user = new User();
-        user.setId(1L);
-        user.setName("Test User");
-        user.setEmail("test@example.com");
+        user.setId(7L);
+        user.setName("Cursor User");
+        user.setEmail("cursor@example.com");
+
+        when(userRepository.findBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class)))
+                .thenReturn(Window.from(List.of(user), ScrollPosition::offset, true));
+
+        String next = new UserCursor(UserCursor.SortKey.ID, null, 7L).encode();
+
+        mockMvc.perform(get("/api/v1/users?after=&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDTOList[0].id").value(7))
+                .andExpect(jsonPath("$._links.next.href").value(containsString("after=" + next)));
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        verify(userRepository, never()).findDtos(any(), any(Pageable.class), any(LongSupplier.class));
+    }
+
+    @Test
+    void shouldSeekPastCursor() throws Exception {
+        when(userRepository.findByStatus(eq(User.UserStatus.ACTIVE), any(ScrollPosition.class), any(Limit.class), any(Sort.class)))
+                .thenReturn(Window.from(List.of(), ScrollPosition::offset, false));
+
+        String after = new UserCursor(UserCursor.SortKey.ID, null, 42L).encode();
+
+        mockMvc.perform(get("/api/v1/users").param("after", after).param("status", "ACTIVE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(userRepository).findByStatus(eq(User.UserStatus.ACTIVE),
+                eq(ScrollPosition.forward(Map.of("id", 42L))), any(Limit.class), eq(Sort.by("id")));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/users?after=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetUserById() throws Exception {
+        UserDTO user = new UserDTO(1L, "Test User", "test@example.com", null, null);
+
+        when(userRepository.findDtosByIds(List.of(1L))).thenReturn(List.of(user));
 
         mockMvc.perform(get("/api/v1/users/1"))
                 .andExpect(status().isOk())
@@ -148,12 +297,53 @@ class UserControllerTest {
 
     @Test
     void shouldReturn404WhenUserNotFound() throws Exception {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.findDtosByIds(List.of(1L))).thenReturn(List.of());
 
         mockMvc.perform(get("/api/v1/users/1"))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldGetUsersByIdsInRequestOrderWithNotFoundMarkers() throws Exception {
+        when(userRepository.findDtosByIds(List.of(3L, 1L, 2L))).thenReturn(List.of(
+                new UserDTO(1L, "First", "first@example.com", null, null, 0L),
+                new UserDTO(3L, "Third", "third@example.com", null, null, 0L)));
+
+        mockMvc.perform(get("/api/v1/users?ids=3,1,3,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[0].status").value("FOUND"))
+                .andExpect(jsonPath("$[0].user.name").value("Third"))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(jsonPath("$[2].id").value(2))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[2].user").doesNotExist());
+
+        verify(userRepository, times(1)).findDtosByIds(any());
+    }
+
+    @Test
+    void shouldRejectTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, UserLookupService.MAX_IDS + 1)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/api/v1/users").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verify(userRepository, never()).findDtosByIds(any());
+    }
+
+    @Test
+    void shouldRejectIdsCombinedWithCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/users").param("ids", "1,2").param("after", ""))
+                .andExpect(status().isBadRequest());
+
+        verify(userRepository, never()).findDtosByIds(any());
+        verify(userRepository, never()).findBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class));
+    }
+
     @Test
     void shouldUpdateUser() throws Exception {
         UserDTO userDTO = new UserDTO();
@@ -161,26 +351,24 @@ class UserControllerTest {
         userDTO.setEmail("updated@example.com");
         userDTO.setPhoneNumber("+1987654321");
 
-        User existingUser = new User();
-        existingUser.setId(1L);
-        existingUser.setName("Original User");
-        existingUser.setEmail("original@example.com");
-
-        User updatedUser = new User();
-        updatedUser.setId(1L);
-        updatedUser.setName(userDTO.getName());
-        updatedUser.setEmail(userDTO.getEmail());
-        updatedUser.setPhoneNumber(userDTO.getPhoneNumber());
-
-        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
-        when(userRepository.save(any())).thenReturn(updatedUser);
+        UserDTO updated = new UserDTO(1L, "Updated User", "updated@example.com", "+1987654321",
+                User.UserStatus.ACTIVE, 3L);
+        when(userRepository.patch(eq(1L), any(UserPatch.class), isNull()))
+                .thenReturn(Optional.of(new UserRepositoryCustom.PatchedUser(updated, "original@example.com")));
 
         mockMvc.perform(put("/api/v1/users/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(userDTO)))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
                 .andExpect(jsonPath("$.name").value("Updated User"))
                 .andExpect(jsonPath("$.email").value("updated@example.com"));
+
+        verify(userRepository).patch(1L, new UserPatch(Map.of(
+                UserPatch.Field.NAME, "Updated User",
+                UserPatch.Field.EMAIL, "updated@example.com",
+                UserPatch.Field.PHONE_NUMBER, "+1987654321")), null);
+        verify(userRepository, never()).findById(any());
     }
 
     @Test
@@ -189,33 +377,219 @@ class UserControllerTest {
         userDTO.setName("Updated User");
         userDTO.setEmail("updated@example.com");
 
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.patch(eq(1L), any(UserPatch.class), isNull())).thenReturn(Optional.empty());
 
         mockMvc.perform(put("/api/v1/users/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(userDTO)))
                 .andExpect(status().isNotFound());
+
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    void shouldApplyMergePatch() throws Exception {
+        UserDTO patched = new UserDTO(1L, "Patched User", "test@example.com", null, User.UserStatus.INACTIVE, 4L);
+        when(userRepository.patch(eq(1L), any(UserPatch.class), eq(3L)))
+                .thenReturn(Optional.of(new UserRepositoryCustom.PatchedUser(patched, "test@example.com")));
+
+        mockMvc.perform(patch("/api/v1/users/1")
+                .header("If-Match", "\"3\"")
+                .contentType(UserController.MERGE_PATCH_JSON)
+                .content("{\"name\":\"Patched User\",\"phoneNumber\":null,\"status\":\"INACTIVE\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.name").value("Patched User"))
+                .andExpect(jsonPath("$.phoneNumber").doesNotExist());
+
+        Map<UserPatch.Field, Object> changes = new HashMap<>();
+        changes.put(UserPatch.Field.NAME, "Patched User");
+        changes.put(UserPatch.Field.PHONE_NUMBER, null);
+        changes.put(UserPatch.Field.STATUS, User.UserStatus.INACTIVE);
+        verify(userRepository).patch(1L, new UserPatch(changes), 3L);
+    }
+
+    @Test
+    void shouldRejectInvalidMergePatch() throws Exception {
+        for (String document : List.of("{\"email\":\"not-an-email\"}", "{\"name\":null}",
+                "{\"status\":null}", "{\"id\":7}", "[]")) {
+            mockMvc.perform(patch("/api/v1/users/1")
+                    .contentType(UserController.MERGE_PATCH_JSON)
+                    .content(document))
+                    .andExpect(status().isBadRequest());
+        }
+
+        verify(userRepository, never()).patch(any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectPatchToEmailInUse() throws Exception {
+        when(userRepository.patch(eq(1L), any(UserPatch.class), isNull()))
+                .thenThrow(new DuplicateKeyException("users_email_key"));
+
+        mockMvc.perform(patch("/api/v1/users/1")
+                .contentType(UserController.MERGE_PATCH_JSON)
+                .content("{\"email\":\"taken@example.com\"}"))
+                .andExpect(status().isConflict());
     }
 
     @Test
     void shouldDeleteUser() throws Exception {
-        User user = new User();
-        user.setId(1L);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.deleteReturningEmail(1L, null)).thenReturn(Optional.of("test@example.com"));
 
         mockMvc.perform(delete("/api/v1/users/1"))
                 .andExpect(status().isNoContent());
 
-        verify(userRepository).delete(user);
+        verify(userRepository, never()).findById(any());
     }
 
     @Test
     void shouldReturn404WhenDeletingNonExistentUser() throws Exception {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.deleteReturningEmail(1L, null)).thenReturn(Optional.empty());
 
         mockMvc.perform(delete("/api/v1/users/1"))
                 .andExpect(status().isNotFound());
 
-        verify(userRepository, never()).delete(any());
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    void shouldReturnNotModifiedForCurrentUserETag() throws Exception {
+        when(userRepository.findDtosByIds(List.of(1L)))
+                .thenReturn(List.of(new UserDTO(1L, "Test User", "test@example.com", null, null, 3L)));
+
+        mockMvc.perform(get("/api/v1/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/users/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void shouldReturnNotModifiedForUnchangedPage() throws Exception {
+        UserDTO user = new UserDTO(1L, "Test User", "test@example.com", null, User.UserStatus.ACTIVE, 0L);
+        when(userRepository.findDtos(isNull(), any(Pageable.class), any(LongSupplier.class))).thenReturn(new PageImpl<>(List.of(user)));
+
+        String etag = mockMvc.perform(get("/api/v1/users"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/users").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        user.setVersion(1L);
+        mockMvc.perform(get("/api/v1/users").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldTagCborSeparatelyAndVaryByAccept() throws Exception {
+        when(userRepository.findDtosByIds(List.of(1L)))
+                .thenReturn(List.of(new UserDTO(1L, "Test User", "test@example.com", null, null, 3L)));
+
+        mockMvc.perform(get("/api/v1/users/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-cbor\""))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")));
+
+        // The JSON tag does not validate a cached CBOR body, nor the reverse
+        mockMvc.perform(get("/api/v1/users/1").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/users/1").header("If-None-Match", "\"3-cbor\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        mockMvc.perform(get("/api/v1/users/1").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"3-cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues("Vary", hasItem("Accept")));
+    }
+
+    @Test
+    void shouldTagCborPageSeparately() throws Exception {
+        UserDTO user = new UserDTO(1L, "Test User", "test@example.com", null, User.UserStatus.ACTIVE, 0L);
+        when(userRepository.findDtos(isNull(), any(Pageable.class), any(LongSupplier.class))).thenReturn(new PageImpl<>(List.of(user)));
+
+        String json = mockMvc.perform(get("/api/v1/users"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andReturn().getResponse().getHeader("ETag");
+        String cbor = mockMvc.perform(get("/api/v1/users").accept(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertThat(cbor).isEqualTo(json.substring(0, json.length() - 1) + UserETags.CBOR_SUFFIX + "\"");
+    }
+
+    @Test
+    void shouldPickCborOnlyWhereNegotiationWould() {
+        assertThat(UserETags.isCbor("application/cbor")).isTrue();
+        assertThat(UserETags.isCbor("application/json;q=0.5, application/cbor")).isTrue();
+        assertThat(UserETags.isCbor("text/html, application/cbor;q=0.9, */*;q=0.8")).isTrue();
+        assertThat(UserETags.isCbor("application/cbor;q=0.5, application/json")).isFalse();
+        assertThat(UserETags.isCbor("application/*")).isFalse();
+        assertThat(UserETags.isCbor("*/*")).isFalse();
+        assertThat(UserETags.isCbor(null)).isFalse();
+    }
+
+    @Test
+    void shouldAcceptCborTagInIfMatch() throws Exception {
+        UserDTO patched = new UserDTO(1L, "Patched User", "test@example.com", null, User.UserStatus.ACTIVE, 4L);
+        when(userRepository.patch(eq(1L), any(UserPatch.class), eq(3L)))
+                .thenReturn(Optional.of(new UserRepositoryCustom.PatchedUser(patched, "test@example.com")));
+
+        mockMvc.perform(patch("/api/v1/users/1")
+                .header("If-Match", "\"3-cbor\"")
+                .accept(MediaType.APPLICATION_CBOR)
+                .contentType(UserController.MERGE_PATCH_JSON)
+                .content("{\"name\":\"Patched User\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-cbor\""));
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleIfMatch() throws Exception {
+        when(userRepository.patch(eq(1L), any(UserPatch.class), eq(1L))).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("Updated User");
+        userDTO.setEmail("updated@example.com");
+
+        mockMvc.perform(put("/api/v1/users/1")
+                .header("If-Match", "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void shouldRejectUnmatchableIfMatchWithoutWriting() throws Exception {
+        mockMvc.perform(patch("/api/v1/users/1")
+                .header("If-Match", "W/\"1\"")
+                .contentType(UserController.MERGE_PATCH_JSON)
+                .content("{\"name\":\"Patched User\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(userRepository, never()).patch(any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectDeleteWithStaleIfMatch() throws Exception {
+        when(userRepository.deleteReturningEmail(1L, 4L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        mockMvc.perform(delete("/api/v1/users/1").header("If-Match", "\"4\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void shouldReturn404WhenConditionallyDeletingNonExistentUser() throws Exception {
+        when(userRepository.deleteReturningEmail(1L, 4L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        mockMvc.perform(delete("/api/v1/users/1").header("If-Match", "\"4\""))
+                .andExpect(status().isNotFound());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserHalMessageConverterTest {
+
+    private static final String USERS = "http://api.example.com/api/v1/users";
+
+    private final UserHalMessageConverter converter = new UserHalMessageConverter(new DefaultLinkRelationProvider());
+    private final ObjectMapper halMapper = new ObjectMapper().registerModule(new Jackson2HalModule());
+
+    UserHalMessageConverterTest() {
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+    }
+
+    @Test
+    void shouldWritePageExactlyAsJacksonHal() throws Exception {
+        PagedModel<EntityModel<UserDTO>> page = PagedModel.of(
+            List.of(model(user(1L, "+1234567890")), model(user(2L, null))),
+            new PagedModel.PageMetadata(2, 0, 5, 3));
+
+        assertThat(write(page, MediaTypes.HAL_JSON)).isEqualTo(halMapper.writeValueAsString(page));
+    }
+
+    @Test
+    void shouldWriteEmptyPageAndCollectionLinksAsJacksonHal() throws Exception {
+        PagedModel<EntityModel<UserDTO>> empty = PagedModel.of(List.of(), new PagedModel.PageMetadata(20, 0, 0, 0));
+        CollectionModel<EntityModel<UserDTO>> window = CollectionModel.of(List.of(model(user(7L, null))),
+            Link.of(USERS + "?after=SUR8Nw&size=1", IanaLinkRelations.NEXT));
+
+        assertThat(write(empty, MediaTypes.HAL_JSON)).isEqualTo(halMapper.writeValueAsString(empty));
+        assertThat(write(window, MediaTypes.HAL_JSON)).isEqualTo(halMapper.writeValueAsString(window));
+    }
+
+    @Test
+    void shouldWriteRepeatedRelationsAndLinkAttributesLikeJacksonHal() throws Exception {
+        EntityModel<UserDTO> model = model(user(1L, null))
+            .add(Link.of(USERS + "{?page,size}", "all-users").withTitle("All users"))
+            .add(Link.of(USERS + "/1/similar", "related"))
+            .add(Link.of(USERS + "/2", "related"));
+
+        assertThat(halMapper.readTree(write(model, MediaTypes.HAL_JSON)))
+            .isEqualTo(halMapper.readTree(halMapper.writeValueAsString(model)));
+    }
+
+    @Test
+    void shouldWriteSameDocumentAsCbor() throws Exception {
+        PagedModel<EntityModel<UserDTO>> page = PagedModel.of(List.of(model(user(1L, null))),
+            new PagedModel.PageMetadata(1, 0, 1, 1));
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        converter.write(page, null, MediaType.APPLICATION_CBOR, message);
+
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(message.getBodyAsBytes()))
+            .isEqualTo(halMapper.readTree(halMapper.writeValueAsString(page)));
+    }
+
+    @Test
+    void shouldOnlyWriteUserTypes() {
+        ResolvableType userPage = ResolvableType.forClassWithGenerics(PagedModel.class,
+            ResolvableType.forClassWithGenerics(EntityModel.class, UserDTO.class));
+        ResolvableType otherModel = ResolvableType.forClassWithGenerics(EntityModel.class, String.class);
+
+        assertThat(converter.canWrite(userPage.getType(), PagedModel.class, MediaTypes.HAL_JSON)).isTrue();
+        assertThat(converter.canWrite(UserDTO.class, UserDTO.class, MediaType.APPLICATION_CBOR)).isTrue();
+        assertThat(converter.canWrite(otherModel.getType(), EntityModel.class, MediaTypes.HAL_JSON)).isFalse();
+        assertThat(converter.canWrite(userPage.getType(), PagedModel.class, MediaType.APPLICATION_XML)).isFalse();
+        // Flattened by the MVC type resolution, and no handler method to recover it from
+        assertThat(converter.canWrite(ResolvableType.forClassWithGenerics(PagedModel.class, EntityModel.class).getType(),
+            PagedModel.class, MediaTypes.HAL_JSON)).isFalse();
+        assertThat(converter.canRead(UserDTO.class, null, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    private String write(Object body, MediaType contentType) throws Exception {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, null, contentType, message);
+        return message.getBodyAsString();
+    }
+
+    private static EntityModel<UserDTO> model(UserDTO user) {
+        String href = USERS + "/" + user.getId();
+        return EntityModel.of(user,
+            Link.of(href, IanaLinkRelations.SELF),
+            Link.of(href, UserModelAssembler.UPDATE_REL),
+            Link.of(href, UserModelAssembler.DELETE_REL));
+    }
+
+    private static UserDTO user(Long id, String phoneNumber) {
+        return new UserDTO(id, "User \"" + id + "\"", "user" + id + "@example.com", phoneNumber,
+            User.UserStatus.ACTIVE, 3L);
+    }
+}
@@ -0,0 +1,46 @@
+package spring.ai.example.spring_ai_demo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.search.UserSemanticIndex;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = UserSimilarityController.class, properties = "app.users.semantic-search.enabled=true")
+class UserSimilarityControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserSemanticIndex semanticIndex;
+
+    @Test
+    void shouldReturnMatchesForText() throws Exception {
+        UserDTO user = new UserDTO(1L, "Jonathan Smith", "jonathan@example.com", null, User.UserStatus.ACTIVE);
+        when(semanticIndex.search("jonathan", 5)).thenReturn(List.of(new UserSemanticIndex.Match(user, 0.9f)));
+
+        mockMvc.perform(get("/api/v1/users:similar").param("q", "jonathan").param("k", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].user.name").value("Jonathan Smith"))
+                .andExpect(jsonPath("$[0].score").value(0.9));
+    }
+
+    @Test
+    void shouldReturn404ForUnindexedUser() throws Exception {
+        when(semanticIndex.similarTo(42L, 10)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/users:similar").param("to", "42"))
+                .andExpect(status().isNotFound());
+    }
+}
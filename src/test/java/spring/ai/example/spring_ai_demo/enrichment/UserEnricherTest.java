@@ -0,0 +1,219 @@
+package spring.ai.example.spring_ai_demo.enrichment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.ObjectProvider;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserEnricherTest {
+
+    private final Map<Long, UserDTO> users = new ConcurrentHashMap<>();
+    private final Map<Long, UserEnrichment> stored = new ConcurrentHashMap<>();
+    private final StubChatModel chatModel = new StubChatModel();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserEnricher enricher;
+
+    @AfterEach
+    void tearDown() {
+        if (enricher != null) {
+            enricher.stop();
+        }
+    }
+
+    @Test
+    void shouldSendQueuedUsersInOnePrompt() throws Exception {
+        enricher = enricher(10, 20, 6000, Duration.ofSeconds(5));
+        create(1L, "jOHN   smith", "john@example.com");
+        create(2L, "ACME sales", "sales@acme.example");
+        create(3L, "test user", "test@test.example");
+
+        enricher.flush();
+
+        assertThat(chatModel.prompts).hasSize(1);
+        assertThat(stored.get(1L).normalizedName()).isEqualTo("John Smith");
+        assertThat(stored.get(2L).category()).isEqualTo(UserEnrichment.Category.BUSINESS);
+        assertThat(stored.get(3L).category()).isEqualTo(UserEnrichment.Category.TEST);
+    }
+
+    @Test
+    void shouldOnlyResendUsersWhoseNameOrEmailChanged() throws Exception {
+        enricher = enricher(10, 20, 6000, Duration.ofSeconds(5));
+        create(1L, "John Smith", "john@example.com");
+        create(2L, "Mary Major", "mary@example.com");
+        enricher.flush();
+
+        update(1L, "John Smith", "john@example.com", User.UserStatus.SUSPENDED);
+        update(2L, "Mary Minor", "mary@example.com", User.UserStatus.ACTIVE);
+        enricher.flush();
+
+        assertThat(chatModel.prompts).hasSize(2);
+        assertThat(chatModel.prompts.get(1)).contains("Mary Minor").doesNotContain("John Smith");
+        assertThat(stored.get(2L).normalizedName()).isEqualTo("Mary Minor");
+    }
+
+    @Test
+    void shouldReuseResultForContentAlreadyClassified() throws Exception {
+        enricher = enricher(10, 20, 6000, Duration.ofSeconds(5));
+        create(1L, "John Smith", "john@example.com");
+        enricher.flush();
+
+        // Deleted, then signed up again with the same details
+        users.remove(1L);
+        create(2L, "John Smith", "john@example.com");
+        enricher.flush();
+
+        assertThat(chatModel.prompts).hasSize(1);
+        assertThat(stored.get(2L).normalizedName()).isEqualTo("John Smith");
+    }
+
+    @Test
+    void shouldGiveUpOnSlowModel() {
+        enricher = enricher(10, 20, 6000, Duration.ofMillis(100));
+        chatModel.delay = Duration.ofSeconds(5);
+        create(1L, "John Smith", "john@example.com");
+
+        long start = System.nanoTime();
+        assertThatThrownBy(enricher::flush).isInstanceOf(IllegalStateException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(stored).isEmpty();
+    }
+
+    @Test
+    void shouldDropChangesRatherThanBlockWhenQueueIsFull() {
+        enricher = enricher(2, 20, 6000, Duration.ofSeconds(5));
+
+        create(1L, "John Smith", "john@example.com");
+        create(2L, "Mary Major", "mary@example.com");
+        create(3L, "Jane Doe", "jane@example.com");
+
+        assertThat(meterRegistry.get("user.enrichment.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.enrichment.queue").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPaceModelCalls() throws Exception {
+        // One call per 100ms
+        enricher = enricher(10, 1, 600, Duration.ofSeconds(5));
+        create(1L, "John Smith", "john@example.com");
+        create(2L, "Mary Major", "mary@example.com");
+        create(3L, "Jane Doe", "jane@example.com");
+
+        long start = System.nanoTime();
+        enricher.flush();
+
+        assertThat(chatModel.prompts).hasSize(3);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @SuppressWarnings("unchecked")
+    private UserEnricher enricher(int queueCapacity, int batchSize, int callsPerMinute, Duration timeout) {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findDtosByIds(any())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList());
+        UserEnrichmentStore store = mock(UserEnrichmentStore.class);
+        when(store.findContentHashes(anyCollection())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).stream()
+                .filter(stored::containsKey)
+                .collect(Collectors.toMap(id -> id, id -> stored.get(id).contentHash())));
+        doAnswer(invocation -> {
+            ((List<UserEnrichment>) invocation.getArgument(0)).forEach(e -> stored.put(e.userId(), e));
+            return null;
+        }).when(store).saveAll(anyList());
+        ObjectProvider<MeterRegistry> registry = mock(ObjectProvider.class);
+        when(registry.getIfAvailable(any(Supplier.class))).thenReturn(meterRegistry);
+
+        return new UserEnricher(userRepository, store, ChatClient.builder(chatModel), registry,
+            queueCapacity, batchSize, Duration.ofMillis(200), callsPerMinute, timeout, 100);
+    }
+
+    private void create(Long id, String name, String email) {
+        users.put(id, new UserDTO(id, name, email, null, User.UserStatus.ACTIVE, 0L));
+        enricher.onUserChanged(UserChangedEvent.created(id, email));
+    }
+
+    private void update(Long id, String name, String email, User.UserStatus status) {
+        users.put(id, new UserDTO(id, name, email, null, status, 1L));
+        enricher.onUserChanged(UserChangedEvent.updated(id, email, email));
+    }
+
+    /**
+     * Answers like a well-behaved model: title-cased names, and a category read
+     * off the email address.
+     */
+    private static final class StubChatModel implements ChatModel {
+
+        final List<String> prompts = new CopyOnWriteArrayList<>();
+        volatile Duration delay = Duration.ZERO;
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            String text = prompt.getInstructions().stream()
+                .filter(UserMessage.class::isInstance)
+                .map(message -> ((UserMessage) message).getText())
+                .collect(Collectors.joining("\n"));
+            prompts.add(text);
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            String entries = text.lines()
+                .filter(line -> line.matches("\\d+\t.*"))
+                .map(line -> line.split("\t"))
+                .map(fields -> "{\"id\": %s, \"normalizedName\": \"%s\", \"category\": \"%s\"}"
+                    .formatted(fields[0], titleCase(fields[1]), category(fields[2])))
+                .collect(Collectors.joining(", ", "```json\n[", "]\n```"));
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(entries))));
+        }
+
+        private static String titleCase(String name) {
+            return List.of(name.trim().split("\\s+")).stream()
+                .map(word -> word.substring(0, 1).toUpperCase(Locale.ROOT) + word.substring(1).toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(" "));
+        }
+
+        private static String category(String email) {
+            if (email.startsWith("test@")) {
+                return "TEST";
+            }
+            return email.startsWith("sales@") ? "BUSINESS" : "PERSON";
+        }
+    }
+}
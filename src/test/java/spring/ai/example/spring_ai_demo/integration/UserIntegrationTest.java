@@ -6,10 +6,27 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import spring.ai.example.spring_ai_demo.dto.UserDTO;
 import spring.ai.example.spring_ai_demo.config.TestContainersConfig;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -50,4 +67,81 @@ class UserIntegrationTest extends TestContainersConfig {
         assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(getResponse.getBody().getName()).isEqualTo("Integration Test User");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void shouldCreateExactlyOneUserWhenEmailIsRacedConcurrently() throws Exception {
+        int threads = 16;
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("Race Test User");
+        userDTO.setEmail("race@test.com");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<HttpStatusCode>> responses = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return restTemplate.postForEntity("/api/v1/users", userDTO, String.class).getStatusCode();
+                }));
+            }
+            start.countDown();
+
+            List<HttpStatusCode> statuses = new ArrayList<>();
+            for (Future<HttpStatusCode> response : responses) {
+                statuses.add(response.get(30, TimeUnit.SECONDS));
+            }
+            assertThat(statuses).filteredOn(HttpStatus.CREATED::equals).hasSize(1);
+            assertThat(statuses).filteredOn(HttpStatus.CONFLICT::equals).hasSize(threads - 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldStreamChangesAfterCursor() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/users/changes?since=0"))
+            .header("Accept", "text/event-stream")
+            .build();
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        CompletableFuture<HttpResponse<Void>> stream =
+            client.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(new LineCollector(lines)));
+        try {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setName("Stream Test User");
+            userDTO.setEmail("stream@test.com");
+            assertThat(restTemplate.postForEntity("/api/v1/users", userDTO, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+
+            String line;
+            while ((line = lines.poll(10, TimeUnit.SECONDS)) != null && !line.contains("stream@test.com")) {
+                // skip earlier changes, ids and event names
+            }
+            assertThat(line).startsWith("data:").contains("\"type\":\"CREATED\"");
+        } finally {
+            stream.cancel(true);
+        }
+    }
+
+    private record LineCollector(BlockingQueue<String> lines) implements Flow.Subscriber<String> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
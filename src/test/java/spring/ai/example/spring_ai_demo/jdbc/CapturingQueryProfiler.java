@@ -0,0 +1,39 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps every statement run through an {@link InstrumentedDataSource} together
+ * with its bind values, so tests can inspect the SQL Hibernate actually emits.
+ */
+public class CapturingQueryProfiler extends QueryProfiler {
+
+    private final List<Statement> statements = new CopyOnWriteArrayList<>();
+
+    public CapturingQueryProfiler() {
+        super(1.0, 1000);
+    }
+
+    public List<Statement> statements() {
+        return List.copyOf(statements);
+    }
+
+    public void clear() {
+        statements.clear();
+    }
+
+    @Override
+    boolean sample() {
+        return true;
+    }
+
+    @Override
+    void logSample(String sql, Map<Integer, Object> binds, long nanos) {
+        statements.add(new Statement(sql, binds.values().toArray()));
+    }
+
+    public record Statement(String sql, Object[] binds) {
+    }
+}
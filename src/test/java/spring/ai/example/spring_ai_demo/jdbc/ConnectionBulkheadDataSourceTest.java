@@ -0,0 +1,53 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ConnectionBulkheadDataSourceTest {
+
+    private DataSource target;
+    private ConnectionBulkheadDataSource bulkhead;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        bulkhead = new ConnectionBulkheadDataSource(target, 2, 50);
+    }
+
+    @Test
+    void shouldFailFastWhenAllPermitsAreHeld() throws SQLException {
+        bulkhead.getConnection();
+        bulkhead.getConnection();
+
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    void shouldReleasePermitOnceWhenClosedTwice() throws SQLException {
+        Connection connection = bulkhead.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReleasePermitWhenPoolThrows() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThatThrownBy(bulkhead::getConnection).hasMessage("pool exhausted");
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,128 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class InstrumentedDataSourceTest {
+
+    private DataSource target;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        when(connection.createStatement()).thenAnswer(invocation -> mock(Statement.class));
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        dataSource = new InstrumentedDataSource(target, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StatementCounter.stop();
+        DatabaseTime.stop();
+    }
+
+    @Test
+    void shouldTimeConnectionWaitAndSlowestStatement() throws SQLException {
+        when(target.getConnection()).thenAnswer(invocation -> {
+            Thread.sleep(30);
+            return connectionWithStatementTaking(60);
+        });
+
+        DatabaseTime.start();
+        Connection connection = dataSource.getConnection();
+        connection.createStatement().execute("select pg_sleep(0.06)");
+
+        DatabaseTime.Sample sample = DatabaseTime.stop();
+        assertThat(sample.connectionWaitNanos()).isGreaterThanOrEqualTo(30_000_000);
+        assertThat(sample.slowestStatementNanos()).isGreaterThanOrEqualTo(60_000_000);
+        assertThat(DatabaseTime.stop().connectionWaitNanos()).isZero();
+    }
+
+    @Test
+    void shouldCountExecutionsBetweenStartAndStop() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.createStatement().execute("select 1");
+
+        StatementCounter.start();
+        PreparedStatement select = connection.prepareStatement("select * from users where id = ?");
+        select.setLong(1, 1L);
+        select.executeQuery();
+        select.executeQuery();
+        connection.createStatement().executeUpdate("delete from users");
+
+        assertThat(StatementCounter.stop()).isEqualTo(3);
+        assertThat(StatementCounter.stop()).isZero();
+    }
+
+    @Test
+    void shouldCountBatchAsOneRoundTrip() throws SQLException {
+        StatementCounter.start();
+        PreparedStatement insert = dataSource.getConnection().prepareStatement("insert into users (name) values (?)");
+        insert.setString(1, "a");
+        insert.addBatch();
+        insert.setString(1, "b");
+        insert.addBatch();
+        insert.executeBatch();
+
+        assertThat(StatementCounter.stop()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAggregateLatencyAndRowsPerNormalizedStatement() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, false);
+        PreparedStatement select = mock(PreparedStatement.class);
+        when(select.executeQuery()).thenReturn(resultSet);
+        Connection connection = target.getConnection();
+        when(connection.prepareStatement("select * from users where id = ?")).thenReturn(select);
+        when(connection.createStatement()).thenAnswer(invocation -> {
+            Statement statement = mock(Statement.class);
+            when(statement.executeUpdate(anyString())).thenReturn(3);
+            return statement;
+        });
+
+        try (QueryProfiler profiler = new QueryProfiler(0, 10)) {
+            Connection profiled = new InstrumentedDataSource(target, profiler).getConnection();
+            try (ResultSet rows = profiled.prepareStatement("select * from users where id = ?").executeQuery()) {
+                while (rows.next()) {
+                    // drain
+                }
+            }
+            profiled.createStatement().executeUpdate("update users set status = 'INACTIVE' where id in (1, 2, 3)");
+            profiled.createStatement().executeUpdate("update users set status = 'ACTIVE' where id in (4, 5)");
+
+            assertThat(profiler.top(10))
+                .extracting(QueryProfiler.QueryStats::sql, QueryProfiler.QueryStats::count, QueryProfiler.QueryStats::rows)
+                .containsExactlyInAnyOrder(
+                    tuple("select * from users where id = ?", 1L, 2L),
+                    tuple("update users set status = ? where id in (?)", 2L, 6L));
+        }
+    }
+
+    private static Connection connectionWithStatementTaking(long millis) throws SQLException {
+        Statement statement = mock(Statement.class);
+        when(statement.execute(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(millis);
+            return true;
+        });
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        return connection;
+    }
+}
@@ -0,0 +1,95 @@
+package spring.ai.example.spring_ai_demo.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = dataSource();
+        replica1 = dataSource();
+        replica2 = dataSource();
+        routing = new ReadWriteRoutingDataSource(primary, List.of(replica1, replica2));
+        // Construction reads the connection defaults from the primary
+        clearInvocations(primary);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadWriteRoutingDataSource.unpin();
+    }
+
+    @Test
+    void shouldSendWritesToPrimary() throws SQLException {
+        execute();
+
+        verify(primary).getConnection();
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    void shouldSpreadReadOnlyTransactionsOverReplicas() throws SQLException {
+        // The transaction manager takes the connection before it marks the transaction read-only
+        Connection connection = routing.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        connection.createStatement();
+        execute();
+        execute();
+
+        verify(replica1, times(2)).getConnection();
+        verify(replica2).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void shouldReadFromPrimaryWhenPinned() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReadWriteRoutingDataSource.pinToPrimary();
+        execute();
+
+        verify(primary).getConnection();
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenReplicaIsDown() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        execute();
+
+        verify(primary).getConnection();
+    }
+
+    private void execute() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            connection.createStatement();
+        }
+    }
+
+    private static DataSource dataSource() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        when(connection.createStatement()).thenAnswer(invocation -> mock(Statement.class));
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
@@ -0,0 +1,186 @@
+package spring.ai.example.spring_ai_demo.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import spring.ai.example.spring_ai_demo.config.TestContainersConfig;
+import spring.ai.example.spring_ai_demo.config.TestJpaConfig;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserFilter;
+import spring.ai.example.spring_ai_demo.jdbc.CapturingQueryProfiler;
+import spring.ai.example.spring_ai_demo.jdbc.InstrumentedDataSource;
+import spring.ai.example.spring_ai_demo.model.User;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Asserts that the access paths of the listing filters (UserSpecifications)
+ * are served by the composite and trigram indexes from the migrations. Each
+ * test runs the repository query, captures the statement Hibernate sends with
+ * its bind values, and explains that statement, so the plans cover exactly
+ * what the application executes (including the {@code deleted_at is null}
+ * restriction that makes the partial indexes usable).
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({TestJpaConfig.class, UserQueryPlanTest.CapturingDataSourceConfig.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserQueryPlanTest extends TestContainersConfig {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final CapturingQueryProfiler PROFILER = new CapturingQueryProfiler();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void seed() {
+        // 50k users, one per minute: 1% SUSPENDED, 9% INACTIVE, 0.2% on a rare domain, 1 in 7 deleted
+        jdbcTemplate.update("""
+            insert into users (name, email, phone_number, status, created_at, updated_at, deleted_at)
+            select 'User ' || i,
+                   'user' || i || '@' || case when i % 500 = 0 then 'rare.example' else 'common.example' end,
+                   null,
+                   case when i % 100 = 0 then 'SUSPENDED' when i % 10 = 0 then 'INACTIVE' else 'ACTIVE' end,
+                   cast(? as timestamp) + i * interval '1 minute',
+                   cast(? as timestamp) + (i + i % 1000) * interval '1 minute',
+                   case when i % 7 = 0 then cast(? as timestamp) + i * interval '1 minute' end
+            from generate_series(1, 50000) as i""",
+            Timestamp.valueOf(START), Timestamp.valueOf(START), Timestamp.valueOf(START));
+        jdbcTemplate.execute("analyze users");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("truncate users, user_changes, user_enrichments, user_embeddings");
+    }
+
+    @Test
+    void statusWithCreatedRangeUsesStatusCreatedIndex() {
+        String plan = explainListing(filter(null, User.UserStatus.SUSPENDED, null, at(7), at(14), null, null),
+            NameMatch.CONTAINS, Sort.by("createdAt", "id"));
+
+        assertThat(plan).contains("idx_users_status_created_at_id").doesNotContain("\"Sort\"");
+    }
+
+    @Test
+    void statusWithUpdatedRangeUsesStatusUpdatedIndex() {
+        String plan = explainListing(filter(null, User.UserStatus.SUSPENDED, null, null, null, at(7), at(14)),
+            NameMatch.CONTAINS, Sort.by("updatedAt", "id"));
+
+        assertThat(plan).contains("idx_users_status_updated_at_id");
+    }
+
+    @Test
+    void updatedRangeUsesUpdatedIndex() {
+        String plan = explainListing(filter(null, null, null, null, null, at(7), at(8)),
+            NameMatch.CONTAINS, Sort.by("updatedAt", "id"));
+
+        assertThat(plan).contains("idx_users_updated_at_id");
+    }
+
+    @Test
+    void emailDomainUsesEmailTrigramIndex() {
+        String plan = explainListing(filter(null, null, "rare.example", null, null, null, null),
+            NameMatch.CONTAINS, Sort.by("id"));
+
+        assertThat(plan).contains("idx_users_email_trgm");
+    }
+
+    @Test
+    void nameWithStatusUsesNameTrigramIndex() {
+        String plan = explainListing(filter("User 4999", User.UserStatus.ACTIVE, null, null, null, null, null),
+            NameMatch.CONTAINS, Sort.by("id"));
+
+        assertThat(plan).contains("idx_users_name_trgm");
+    }
+
+    @Test
+    void fuzzyNameWithStatusUsesNameTrigramIndex() {
+        // Sorted by name so no b-tree can serve the order and the plan has to pick a filter index
+        String plan = explainListing(filter("Usr 4999", User.UserStatus.ACTIVE, null, null, null, null, null),
+            NameMatch.FUZZY, Sort.by("name", "id"));
+
+        assertThat(plan).contains("idx_users_name_trgm").doesNotContain("word_similarity");
+    }
+
+    @Test
+    void statusKeysetUsesLiveStatusIndex() {
+        String plan = explain(() -> userRepository.findByStatus(User.UserStatus.SUSPENDED,
+            ScrollPosition.forward(Map.of("id", 25000L)), Limit.of(20), Sort.by("id")));
+
+        assertThat(plan).contains("idx_users_status_id").doesNotContain("\"Sort\"");
+    }
+
+    @Test
+    void archivalCandidatesUseDeletedIndex() {
+        String plan = explain(() -> userRepository.archiveDeleted(START.plusDays(1), 1000));
+
+        assertThat(plan).contains("idx_users_deleted_at");
+    }
+
+    private String explainListing(UserFilter filter, NameMatch match, Sort sort) {
+        return explain(() -> userRepository.findDtos(UserSpecifications.matching(filter, match),
+            PageRequest.of(0, 20, sort), () -> 0));
+    }
+
+    /**
+     * Runs the query, then explains the first statement it sent (the page, not
+     * the count) with the values Hibernate bound.
+     */
+    private String explain(Runnable query) {
+        PROFILER.clear();
+        query.run();
+        CapturingQueryProfiler.Statement statement = PROFILER.statements().get(0);
+        return String.join("\n", jdbcTemplate.queryForList("explain (format json) " + statement.sql(), String.class,
+            statement.binds())) + "\n" + statement.sql();
+    }
+
+    private static UserFilter filter(String name, User.UserStatus status, String emailDomain,
+                                     LocalDateTime createdAfter, LocalDateTime createdBefore,
+                                     LocalDateTime updatedAfter, LocalDateTime updatedBefore) {
+        return new UserFilter(name, status, emailDomain, createdAfter, createdBefore, updatedAfter, updatedBefore);
+    }
+
+    private static LocalDateTime at(int days) {
+        return START.plusDays(days);
+    }
+
+    @TestConfiguration
+    static class CapturingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new InstrumentedDataSource(dataSource, PROFILER) : bean;
+                }
+            };
+        }
+    }
+}
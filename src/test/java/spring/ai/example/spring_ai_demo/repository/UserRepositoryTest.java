@@ -1,16 +1,30 @@
 package spring.ai.example.spring_ai_demo.repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import spring.ai.example.spring_ai_demo.config.TestContainersConfig;
 import spring.ai.example.spring_ai_demo.config.TestJpaConfig;
 import org.springframework.context.annotation.Import;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.dto.UserPatch;
 import spring.ai.example.spring_ai_demo.model.User;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -24,6 +38,9 @@ class UserRepositoryTest extends TestContainersConfig {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void shouldSaveUser() {
         // Given
@@ -41,22 +58,6 @@ class UserRepositoryTest extends TestContainersConfig {
         assertThat(savedUser.getEmail()).isEqualTo("test@example.com");
     }
 
-    @Test
-    void shouldFindByEmail() {
-        // Given
-        User user = new User();
-        user.setName("Test User");
-        user.setEmail("test@example.com");
-        user.setPhoneNumber("+1234567890");
-        userRepository.save(user);
-
-        // When
-        boolean exists = userRepository.existsByEmail("test@example.com");
-
-        // Then
-        assertThat(exists).isTrue();
-    }
-
     @Test
     void shouldFindByNameContaining() {
         // Given
@@ -65,15 +66,12 @@ class UserRepositoryTest extends TestContainersConfig {
         userRepository.saveAll(List.of(user1, user2));
 
         // When
-        Page<User> users = userRepository.findByNameContainingIgnoreCase(
-            "doe", 
-            PageRequest.of(0, 10)
-        );
+        Page<UserDTO> users = searchByName("doe", NameMatch.CONTAINS);
 
         // Then
         assertThat(users.getContent()).hasSize(2);
-        assertThat(users.getContent()).extracting("name")
-            .allMatch(name -> ((String) name).contains("Doe"));
+        assertThat(users.getContent()).extracting(UserDTO::getName)
+            .allMatch(name -> name.contains("Doe"));
     }
 
     @Test
@@ -86,10 +84,7 @@ class UserRepositoryTest extends TestContainersConfig {
         userRepository.save(user);
 
         // When
-        Page<User> users = userRepository.findByStatus(
-            User.UserStatus.ACTIVE,
-            PageRequest.of(0, 10)
-        );
+        Page<UserDTO> users = findDtos(UserSpecifications.hasStatus(User.UserStatus.ACTIVE), PageRequest.of(0, 10));
 
         // Then
         assertThat(users.getContent()).hasSize(1);
@@ -97,6 +92,222 @@ class UserRepositoryTest extends TestContainersConfig {
             .isEqualTo(User.UserStatus.ACTIVE);
     }
 
+    @Test
+    void shouldSearchByNamePrefixInNameOrder() {
+        userRepository.saveAll(List.of(
+            createUser("Johnson Smith", "johnson@example.com"),
+            createUser("John Doe", "john@example.com"),
+            createUser("Mary John", "mary@example.com")));
+
+        Page<UserDTO> users = searchByName("john", NameMatch.PREFIX);
+
+        assertThat(users.getContent()).extracting(UserDTO::getName)
+            .containsExactly("John Doe", "Johnson Smith");
+    }
+
+    @Test
+    void shouldRankContainsMatchesBySimilarity() {
+        userRepository.saveAll(List.of(
+            createUser("Alexander Doe", "alexander@example.com"),
+            createUser("Doe", "doe@example.com")));
+
+        Page<UserDTO> users = searchByName("DOE", NameMatch.CONTAINS);
+
+        assertThat(users.getContent()).extracting(UserDTO::getName)
+            .containsExactly("Doe", "Alexander Doe");
+        assertThat(users.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTreatLikeWildcardsLiterally() {
+        userRepository.save(createUser("John Doe", "john@example.com"));
+
+        Page<UserDTO> users = searchByName("%", NameMatch.CONTAINS);
+
+        assertThat(users.getContent()).isEmpty();
+    }
+
+    @Test
+    void shouldFindNamesWithTypos() {
+        userRepository.saveAll(List.of(
+            createUser("Jonathan Smith", "jonathan@example.com"),
+            createUser("Mary Major", "mary@example.com")));
+
+        Page<UserDTO> users = searchByName("jonathon", NameMatch.FUZZY);
+
+        assertThat(users.getContent()).extracting(UserDTO::getName).containsExactly("Jonathan Smith");
+    }
+
+    @Test
+    void shouldReadDtoById() {
+        User saved = userRepository.save(createUser("John Doe", "john@example.com"));
+
+        Optional<UserDTO> user = userRepository.findDtoById(saved.getId());
+
+        assertThat(user).hasValueSatisfying(dto -> {
+            assertThat(dto.getName()).isEqualTo("John Doe");
+            assertThat(dto.getEmail()).isEqualTo("john@example.com");
+            assertThat(dto.getStatus()).isEqualTo(User.UserStatus.ACTIVE);
+        });
+    }
+
+    @Test
+    void shouldReadLiveDtosByIdsInOneStatement() {
+        User john = userRepository.saveAndFlush(createUser("John Doe", "john@example.com"));
+        User jane = userRepository.saveAndFlush(createUser("Jane Doe", "jane@example.com"));
+        User deleted = userRepository.saveAndFlush(createUser("Gone", "gone@example.com"));
+        userRepository.deleteReturningEmail(deleted.getId(), null);
+
+        List<UserDTO> users = userRepository.findDtosByIds(List.of(jane.getId(), deleted.getId(), john.getId(), -1L));
+
+        assertThat(users).extracting(UserDTO::getEmail).containsExactlyInAnyOrder("john@example.com", "jane@example.com");
+        assertThat(userRepository.findDtosByIds(List.of())).isEmpty();
+    }
+
+    @Test
+    void shouldPageLiveIdsInIdOrder() {
+        User first = userRepository.saveAndFlush(createUser("First", "first@example.com"));
+        User deleted = userRepository.saveAndFlush(createUser("Gone", "gone@example.com"));
+        User second = userRepository.saveAndFlush(createUser("Second", "second@example.com"));
+        User third = userRepository.saveAndFlush(createUser("Third", "third@example.com"));
+        userRepository.deleteReturningEmail(deleted.getId(), null);
+
+        assertThat(userRepository.findIdsAfter(0L, Limit.of(2))).containsExactly(first.getId(), second.getId());
+        assertThat(userRepository.findIdsAfter(second.getId(), Limit.of(2))).containsExactly(third.getId());
+    }
+
+    @Test
+    void shouldReadFilteredDtoPage() {
+        User suspended = createUser("Suspended User", "suspended@example.com");
+        suspended.setStatus(User.UserStatus.SUSPENDED);
+        userRepository.saveAll(List.of(createUser("Active User", "active@example.com"), suspended));
+
+        Page<UserDTO> users = findDtos(
+            UserSpecifications.hasStatus(User.UserStatus.SUSPENDED), PageRequest.of(0, 10, Sort.by("name")));
+
+        assertThat(users.getContent()).extracting(UserDTO::getEmail).containsExactly("suspended@example.com");
+        assertThat(users.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldInsertUnlessEmailExists() {
+        Optional<UserDTO> created = userRepository.insertIgnoringDuplicate(createUser("John Doe", "john@example.com"));
+
+        assertThat(created).hasValueSatisfying(dto -> {
+            assertThat(dto.getId()).isNotNull();
+            assertThat(dto.getVersion()).isZero();
+        });
+        assertThat(userRepository.insertIgnoringDuplicate(createUser("Other John", "john@example.com"))).isEmpty();
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPatchInOneStatementAndReportPreviousEmail() {
+        User saved = userRepository.saveAndFlush(createUser("John Doe", "john@example.com"));
+        Map<UserPatch.Field, Object> changes = new HashMap<>();
+        changes.put(UserPatch.Field.EMAIL, "johnny@example.com");
+        changes.put(UserPatch.Field.PHONE_NUMBER, null);
+
+        Optional<UserRepositoryCustom.PatchedUser> patched =
+            userRepository.patch(saved.getId(), new UserPatch(changes), saved.getVersion());
+
+        assertThat(patched).hasValueSatisfying(result -> {
+            assertThat(result.previousEmail()).isEqualTo("john@example.com");
+            assertThat(result.user().getEmail()).isEqualTo("johnny@example.com");
+            assertThat(result.user().getName()).isEqualTo("John Doe");
+            assertThat(result.user().getPhoneNumber()).isNull();
+            assertThat(result.user().getVersion()).isEqualTo(saved.getVersion() + 1);
+        });
+    }
+
+    @Test
+    void shouldNotPatchOrDeleteStaleVersion() {
+        User saved = userRepository.saveAndFlush(createUser("John Doe", "john@example.com"));
+        UserPatch rename = new UserPatch(Map.of(UserPatch.Field.NAME, "Jane Doe"));
+
+        assertThat(userRepository.patch(saved.getId(), rename, saved.getVersion() + 1)).isEmpty();
+        assertThat(userRepository.deleteReturningEmail(saved.getId(), saved.getVersion() + 1)).isEmpty();
+        assertThat(userRepository.patch(saved.getId() + 1, rename, null)).isEmpty();
+
+        assertThat(userRepository.deleteReturningEmail(saved.getId(), saved.getVersion()))
+            .contains("john@example.com");
+        assertThat(userRepository.findDtoById(saved.getId())).isEmpty();
+    }
+
+    @Test
+    void shouldStreamAllUsersInIdOrderAcrossFetches() {
+        for (int i = 0; i < 5; i++) {
+            userRepository.save(createUser("User " + i, "user" + i + "@example.com"));
+        }
+        userRepository.flush();
+
+        List<UserDTO> streamed = new ArrayList<>();
+        userRepository.forEachDto(2, streamed::add);
+
+        assertThat(streamed).extracting(UserDTO::getEmail).containsExactly(
+            "user0@example.com", "user1@example.com", "user2@example.com", "user3@example.com", "user4@example.com");
+    }
+
+    @Test
+    void shouldEstimateCountFromStatistics() {
+        for (int i = 0; i < 5; i++) {
+            userRepository.save(createUser("User " + i, "user" + i + "@example.com"));
+        }
+        userRepository.flush();
+        jdbcTemplate.execute("analyze users");
+
+        assertThat(userRepository.estimateCount()).isEqualTo(5);
+        assertThat(userRepository.countByName("user", NameMatch.PREFIX)).isEqualTo(5);
+    }
+
+    @Test
+    void shouldHideDeletedUsersAndFreeTheirEmail() {
+        User saved = userRepository.saveAndFlush(createUser("John Doe", "john@example.com"));
+
+        assertThat(userRepository.deleteReturningEmail(saved.getId(), null)).contains("john@example.com");
+        assertThat(userRepository.deleteReturningEmail(saved.getId(), null)).isEmpty();
+
+        assertThat(userRepository.existsById(saved.getId())).isFalse();
+        assertThat(userRepository.findDtoById(saved.getId())).isEmpty();
+        assertThat(userRepository.count()).isZero();
+        assertThat(searchByName("john", NameMatch.PREFIX)).isEmpty();
+        assertThat(userRepository.patch(saved.getId(), new UserPatch(Map.of(UserPatch.Field.NAME, "Jane Doe")), null))
+            .isEmpty();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from users where deleted_at is not null", Long.class))
+            .isEqualTo(1);
+
+        assertThat(userRepository.insertIgnoringDuplicate(createUser("John Again", "john@example.com"))).isPresent();
+    }
+
+    @Test
+    void shouldArchiveOnlyUsersDeletedOrInactiveBeforeCutoff() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        User deletedLongAgo = userRepository.saveAndFlush(createUser("Deleted Old", "deleted-old@example.com"));
+        User deletedRecently = userRepository.saveAndFlush(createUser("Deleted New", "deleted-new@example.com"));
+        User inactiveLongAgo = createUser("Inactive Old", "inactive-old@example.com");
+        inactiveLongAgo.setStatus(User.UserStatus.INACTIVE);
+        inactiveLongAgo = userRepository.saveAndFlush(inactiveLongAgo);
+        User activeLongAgo = userRepository.saveAndFlush(createUser("Active Old", "active-old@example.com"));
+        userRepository.deleteReturningEmail(deletedLongAgo.getId(), null);
+        userRepository.deleteReturningEmail(deletedRecently.getId(), null);
+        jdbcTemplate.update("update users set deleted_at = ? where id = ?",
+            Timestamp.valueOf(cutoff.minusDays(1)), deletedLongAgo.getId());
+        jdbcTemplate.update("update users set updated_at = ? where id in (?, ?)",
+            Timestamp.valueOf(cutoff.minusDays(1)), inactiveLongAgo.getId(), activeLongAgo.getId());
+
+        assertThat(userRepository.archiveDeleted(cutoff, 10)).isEqualTo(1);
+        assertThat(userRepository.archiveInactive(cutoff, 10)).extracting(UserDTO::getEmail)
+            .containsExactly("inactive-old@example.com");
+        assertThat(userRepository.archiveDeleted(cutoff, 10)).isZero();
+
+        assertThat(jdbcTemplate.queryForList("select email from users_archive where id in (?, ?)", String.class,
+            deletedLongAgo.getId(), inactiveLongAgo.getId()))
+            .containsExactlyInAnyOrder("deleted-old@example.com", "inactive-old@example.com");
+        assertThat(jdbcTemplate.queryForList("select email from users where id in (?, ?, ?, ?)", String.class,
+            deletedLongAgo.getId(), deletedRecently.getId(), inactiveLongAgo.getId(), activeLongAgo.getId()))
+            .containsExactlyInAnyOrder("deleted-new@example.com", "active-old@example.com");
+    }
+
     private User createUser(String name, String email) {
         User user = new User();
         user.setName(name);
@@ -105,4 +316,13 @@ class UserRepositoryTest extends TestContainersConfig {
         user.setStatus(User.UserStatus.ACTIVE);
         return user;
     }
-} 
\ No newline at end of file
+
+    private Page<UserDTO> findDtos(Specification<User> spec, Pageable pageable) {
+        return userRepository.findDtos(spec, pageable, () -> userRepository.count(spec));
+    }
+
+    private Page<UserDTO> searchByName(String name, NameMatch match) {
+        return userRepository.searchByName(name, match, PageRequest.of(0, 10),
+            () -> userRepository.countByName(name, match));
+    }
+}
@@ -0,0 +1,60 @@
+package spring.ai.example.spring_ai_demo.search;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deterministic stand-in for an embedding server: hashes character trigrams
+ * into a fixed-size, L2-normalised vector, so texts sharing substrings end up
+ * close in cosine distance.
+ */
+class HashingEmbeddingModel implements EmbeddingModel {
+
+    static final int DIMENSIONS = 256;
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        calls.incrementAndGet();
+        List<Embedding> embeddings = new ArrayList<>();
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(vector(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return DIMENSIONS;
+    }
+
+    private static float[] vector(String text) {
+        String padded = "  " + text.toLowerCase(Locale.ROOT) + "  ";
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            vector[Math.floorMod(padded.substring(i, i + 3).hashCode(), DIMENSIONS)] += 1;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
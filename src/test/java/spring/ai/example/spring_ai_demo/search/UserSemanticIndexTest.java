@@ -0,0 +1,174 @@
+package spring.ai.example.spring_ai_demo.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSemanticIndexTest {
+
+    private final Map<Long, UserDTO> users = new ConcurrentHashMap<>();
+    private final Map<Long, UserEmbeddingStore.StoredEmbedding> stored = new ConcurrentHashMap<>();
+    private final HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel();
+    private UserRepository userRepository;
+    private UserEmbeddingStore store;
+    private UserSemanticIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findDtosByIds(any())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList());
+        when(userRepository.findIdsAfter(any(), any())).thenAnswer(invocation -> users.keySet().stream()
+            .filter(id -> id > invocation.<Long>getArgument(0))
+            .sorted()
+            .limit(invocation.<Limit>getArgument(1).max())
+            .toList());
+
+        store = mock(UserEmbeddingStore.class);
+        when(store.findByUserIds(anyCollection())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).stream()
+                .filter(stored::containsKey)
+                .collect(Collectors.toMap(Function.identity(), stored::get)));
+        doAnswer(invocation -> {
+            ((List<UserEmbeddingStore.StoredEmbedding>) invocation.getArgument(0))
+                .forEach(embedding -> stored.put(embedding.userId(), embedding));
+            return null;
+        }).when(store).saveAll(any());
+        doAnswer(invocation -> {
+            ((Collection<Long>) invocation.getArgument(0)).forEach(stored::remove);
+            return null;
+        }).when(store).deleteByUserIds(any());
+
+        index = newIndex();
+    }
+
+    @Test
+    void shouldEmbedChangedUsersInBatches() {
+        create(1L, "Jonathan Smith");
+        create(2L, "Mary Major");
+        create(3L, "Jonas Smithers");
+
+        index.flush();
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(embeddingModel.calls).hasValue(2);
+    }
+
+    @Test
+    void shouldRankNearestUsersFirst() {
+        create(1L, "Jonathan Smith");
+        create(2L, "Mary Major");
+        create(3L, "Jonas Smithers");
+        index.flush();
+
+        List<UserSemanticIndex.Match> matches = index.search("jonathan smith", 2);
+
+        assertThat(matches).extracting(match -> match.user().getId()).containsExactly(1L, 3L);
+        assertThat(matches.get(0).score()).isGreaterThan(matches.get(1).score());
+    }
+
+    @Test
+    void shouldExcludeUserFromItsOwnNeighbours() {
+        create(1L, "Jonathan Smith");
+        create(2L, "Jonas Smithers");
+        index.flush();
+
+        assertThat(index.similarTo(1L, 5)).hasValueSatisfying(matches ->
+            assertThat(matches).extracting(match -> match.user().getId()).containsExactly(2L));
+        assertThat(index.similarTo(99L, 5)).isEmpty();
+    }
+
+    @Test
+    void shouldReindexUpdatedUsers() {
+        create(1L, "Jonathan Smith");
+        create(2L, "Mary Major");
+        index.flush();
+
+        users.put(1L, user(1L, "Priscilla Queen"));
+        index.onUserChanged(UserChangedEvent.updated(1L, "user1@example.com", "user1@example.com"));
+        index.flush();
+
+        assertThat(index.search("priscilla", 1))
+            .extracting(match -> match.user().getName()).containsExactly("Priscilla Queen");
+    }
+
+    @Test
+    void shouldDropDeletedUsers() {
+        create(1L, "Jonathan Smith");
+        create(2L, "Mary Major");
+        index.flush();
+
+        users.remove(1L);
+        index.onUserChanged(UserChangedEvent.deleted(1L, "user1@example.com"));
+
+        assertThat(index.search("jonathan smith", 2))
+            .extracting(match -> match.user().getId()).containsExactly(2L);
+
+        index.flush();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(stored).doesNotContainKey(1L);
+    }
+
+    @Test
+    void shouldRebuildFromStoredEmbeddingsWithoutReembeddingUnchangedUsers() {
+        create(1L, "Jonathan Smith");
+        create(2L, "Mary Major");
+        create(3L, "Jonas Smithers");
+        create(4L, "Ada Lovelace");
+        index.flush();
+        assertThat(embeddingModel.calls).hasValue(2);
+
+        // Changed and deleted while the application was down
+        users.put(4L, user(4L, "Priscilla Queen"));
+        users.remove(3L);
+
+        UserSemanticIndex restarted = newIndex();
+        restarted.rebuild();
+        restarted.flush();
+
+        // Pages [1, 2] and [4]: only the second has anything to embed
+        assertThat(embeddingModel.calls).hasValue(3);
+        assertThat(restarted.size()).isEqualTo(3);
+        assertThat(restarted.search("jonathan smith", 1))
+            .extracting(match -> match.user().getId()).containsExactly(1L);
+        assertThat(restarted.search("priscilla queen", 1))
+            .extracting(match -> match.user().getId()).containsExactly(4L);
+    }
+
+    private UserSemanticIndex newIndex() {
+        return new UserSemanticIndex(userRepository, store, embeddingModel, 2, Duration.ofMillis(200));
+    }
+
+    private void create(Long id, String name) {
+        users.put(id, user(id, name));
+        index.onUserChanged(UserChangedEvent.created(id, "user" + id + "@example.com"));
+    }
+
+    private static UserDTO user(Long id, String name) {
+        return new UserDTO(id, name, "user" + id + "@example.com", null, User.UserStatus.ACTIVE);
+    }
+}
@@ -0,0 +1,64 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class UserArchiveServiceTest {
+
+    private UserRepository userRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private UserArchiveService archiveService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        archiveService = new UserArchiveService(userRepository, eventPublisher, mock(ObjectProvider.class),
+            Duration.ofHours(1), Duration.ofDays(30), Duration.ofDays(365), 2);
+    }
+
+    @Test
+    void shouldArchiveInBatchesUntilOneComesBackShort() {
+        when(userRepository.archiveDeleted(any(LocalDateTime.class), eq(2))).thenReturn(2, 2, 1);
+        when(userRepository.archiveInactive(any(LocalDateTime.class), eq(2))).thenReturn(List.of());
+
+        assertThat(archiveService.archive()).isEqualTo(5);
+        verify(userRepository, times(3)).archiveDeleted(any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void shouldAnnounceArchivedInactiveUsersAsDeleted() {
+        when(userRepository.archiveInactive(any(LocalDateTime.class), eq(2)))
+            .thenReturn(List.of(user(1L, "a@example.com"), user(2L, "b@example.com")), List.of(user(3L, "c@example.com")));
+
+        assertThat(archiveService.archive()).isEqualTo(3);
+        verify(eventPublisher).publishEvent(UserChangedEvent.deleted(1L, "a@example.com"));
+        verify(eventPublisher).publishEvent(UserChangedEvent.deleted(2L, "b@example.com"));
+        verify(eventPublisher).publishEvent(UserChangedEvent.deleted(3L, "c@example.com"));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    private static UserDTO user(Long id, String email) {
+        return new UserDTO(id, "User " + id, email, null, User.UserStatus.INACTIVE, 0L);
+    }
+}
@@ -0,0 +1,84 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import spring.ai.example.spring_ai_demo.dto.CountStrategy;
+import spring.ai.example.spring_ai_demo.dto.NameMatch;
+import spring.ai.example.spring_ai_demo.dto.UserFilter;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserCountServiceTest {
+
+    private final UserFilter active = new UserFilter(null, User.UserStatus.ACTIVE, null, null, null, null, null);
+
+    private UserRepository userRepository;
+    private UserCountService counts;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        counts = new UserCountService(userRepository, new ConcurrentMapCacheManager(UserCountService.CACHE), false);
+    }
+
+    @Test
+    void shouldCacheCountPerFilterUntilAUserChanges() {
+        AtomicLong queries = new AtomicLong();
+        LongSupplier exact = () -> 10 + queries.getAndIncrement();
+
+        assertThat(counts.total(CountStrategy.CACHED, active, NameMatch.CONTAINS, exact).getAsLong()).isEqualTo(10);
+        // match is irrelevant without a name, so this is the same entry
+        assertThat(counts.total(CountStrategy.CACHED, active, NameMatch.FUZZY, exact).getAsLong()).isEqualTo(10);
+        assertThat(counts.total(CountStrategy.CACHED, UserFilter.none(), NameMatch.CONTAINS, exact).getAsLong())
+            .isEqualTo(11);
+
+        counts.onUserChanged(UserChangedEvent.created(1L, "new@example.com"));
+
+        assertThat(counts.total(CountStrategy.CACHED, active, NameMatch.CONTAINS, exact).getAsLong()).isEqualTo(12);
+    }
+
+    @Test
+    void shouldOnlyCacheCountsReadFromPrimaryWithReplicas() {
+        UserCountService routed = new UserCountService(userRepository,
+            new ConcurrentMapCacheManager(UserCountService.CACHE), true);
+        // The replica has not seen the user just created yet
+        LongSupplier exact = () -> ReadWriteRoutingDataSource.isPinnedToPrimary() ? 11 : 10;
+
+        routed.onUserChanged(UserChangedEvent.created(11L, "new@example.com"));
+
+        assertThat(routed.total(CountStrategy.CACHED, active, NameMatch.CONTAINS, exact).getAsLong()).isEqualTo(10);
+        ReadWriteRoutingDataSource.pinToPrimary();
+        try {
+            assertThat(routed.total(CountStrategy.CACHED, active, NameMatch.CONTAINS, exact).getAsLong())
+                .isEqualTo(11);
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+        }
+        assertThat(routed.total(CountStrategy.CACHED, active, NameMatch.CONTAINS, exact).getAsLong()).isEqualTo(11);
+    }
+
+    @Test
+    void shouldCountExactlyWhenTableWasNeverAnalyzed() {
+        when(userRepository.estimateCount()).thenReturn(-1L);
+
+        assertThat(counts.total(CountStrategy.ESTIMATED, null, NameMatch.CONTAINS, () -> 7).getAsLong()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldResolveDefaultsByWhetherListingIsFiltered() {
+        assertThat(counts.resolve(null, null)).isEqualTo(CountStrategy.ESTIMATED);
+        assertThat(counts.resolve(null, active)).isEqualTo(CountStrategy.EXACT);
+        assertThat(counts.resolve(CountStrategy.ESTIMATED, active)).isEqualTo(CountStrategy.CACHED);
+        assertThat(counts.resolve(CountStrategy.EXACT, UserFilter.none())).isEqualTo(CountStrategy.EXACT);
+    }
+}
@@ -0,0 +1,273 @@
+package spring.ai.example.spring_ai_demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import spring.ai.example.spring_ai_demo.cache.SingleFlight;
+import spring.ai.example.spring_ai_demo.cache.UserCache;
+import spring.ai.example.spring_ai_demo.dto.UserDTO;
+import spring.ai.example.spring_ai_demo.event.UserChangedEvent;
+import spring.ai.example.spring_ai_demo.jdbc.DatabaseTime;
+import spring.ai.example.spring_ai_demo.jdbc.ReadWriteRoutingDataSource;
+import spring.ai.example.spring_ai_demo.model.User;
+import spring.ai.example.spring_ai_demo.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLookupServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Long>> queries = new CopyOnWriteArrayList<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void shouldCoalesceConcurrentLookupsIntoOneQuery() throws Exception {
+        UserLookupService lookups = lookups(Duration.ofMillis(200), 100);
+        answerWithEvenIds();
+
+        List<Future<Optional<UserDTO>>> results = lookupConcurrently(lookups, List.of(1L, 2L, 3L, 4L, 2L), Set.of());
+
+        assertThat(queries).hasSize(1);
+        assertThat(queries.get(0)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+        assertThat(results.get(0).get()).isEmpty();
+        assertThat(results.get(1).get()).map(UserDTO::getId).contains(2L);
+        assertThat(results.get(3).get()).map(UserDTO::getId).contains(4L);
+        assertThat(results.get(4).get()).map(UserDTO::getId).contains(2L);
+        assertThat(meterRegistry.get("user.lookup.batch.size").summary().max()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldRunFullBatchWithoutWaitingForWindow() throws Exception {
+        UserLookupService lookups = lookups(Duration.ofSeconds(30), 2);
+        answerWithEvenIds();
+
+        long start = System.nanoTime();
+        List<Future<Optional<UserDTO>>> results = lookupConcurrently(lookups, List.of(1L, 2L, 3L, 4L), Set.of());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+        assertThat(queries).hasSize(2).allSatisfy(ids -> assertThat(ids).hasSize(2));
+        assertThat(results.get(3).get()).isPresent();
+    }
+
+    @Test
+    void shouldReadBatchesFromPrimary() throws Exception {
+        UserLookupService lookups = lookups(Duration.ofMillis(200), 100);
+        List<Boolean> pinned = new CopyOnWriteArrayList<>();
+        when(userRepository.findDtosByIds(anyCollection())).thenAnswer(invocation -> {
+            pinned.add(ReadWriteRoutingDataSource.isPinnedToPrimary());
+            return List.of();
+        });
+
+        lookupConcurrently(lookups, List.of(1L, 2L, 3L, 4L), Set.of(3L, 4L));
+
+        assertThat(pinned).containsExactly(true);
+    }
+
+    @Test
+    void shouldCreditBatchQueryTimeToEveryCallerInBatch() throws Exception {
+        UserLookupService lookups = lookups(Duration.ofMillis(200), 100);
+        when(userRepository.findDtosByIds(anyCollection())).thenAnswer(invocation -> {
+            DatabaseTime.add(new DatabaseTime.Sample(0, 80_000_000));
+            return List.of();
+        });
+
+        CyclicBarrier start = new CyclicBarrier(3);
+        List<Future<DatabaseTime.Sample>> samples = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            long key = id;
+            samples.add(callers.submit(() -> {
+                start.await();
+                DatabaseTime.start();
+                lookups.findById(key);
+                return DatabaseTime.stop();
+            }));
+        }
+
+        for (Future<DatabaseTime.Sample> sample : samples) {
+            assertThat(sample.get().slowestStatementNanos()).isEqualTo(80_000_000);
+        }
+        verify(userRepository).findDtosByIds(anyCollection());
+    }
+
+    @Test
+    void shouldNotCacheRowsFromLaggingReplica() {
+        UserCache userCache = new UserCache(new ConcurrentMapCacheManager(UserCache.BY_ID, UserCache.BY_EMAIL));
+        UserLookupService lookups = new UserLookupService(userRepository, userCache,
+            new SingleFlight(registry(), Duration.ofSeconds(1)), registry(), Duration.ZERO, 100);
+        userCache.put(user(5L, "Before"));
+        // The primary has the rename, the replica does not yet
+        when(userRepository.findDtoById(5L)).thenAnswer(invocation -> Optional.of(
+            user(5L, ReadWriteRoutingDataSource.isPinnedToPrimary() ? "After" : "Before")));
+        userCache.onUserChanged(UserChangedEvent.updated(5L, "user5@example.com", "user5@example.com"));
+
+        Optional<UserDTO> unpinned = lookups.findById(5L);
+        ReadWriteRoutingDataSource.pinToPrimary();
+        Optional<UserDTO> pinned;
+        try {
+            pinned = lookups.findById(5L);
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+        }
+
+        assertThat(unpinned).map(UserDTO::getName).contains("After");
+        assertThat(pinned).map(UserDTO::getName).contains("After");
+    }
+
+    @Test
+    void shouldFailEveryLookupInFailedBatch() throws Exception {
+        UserLookupService lookups = lookups(Duration.ofMillis(200), 100);
+        when(userRepository.findDtosByIds(anyCollection())).thenThrow(new IllegalStateException("database down"));
+
+        List<Future<Optional<UserDTO>>> results = lookupConcurrently(lookups, List.of(1L, 2L, 3L), Set.of());
+
+        for (Future<Optional<UserDTO>> result : results) {
+            assertThatThrownBy(result::get).hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void shouldQueryOnceForDistinctUncachedIds() {
+        UserCache userCache = new UserCache(new ConcurrentMapCacheManager(UserCache.BY_ID, UserCache.BY_EMAIL));
+        userCache.put(user(4L));
+        UserLookupService lookups = new UserLookupService(userRepository, userCache, new SingleFlight(registry(), Duration.ofSeconds(1)), registry(),
+            Duration.ofMillis(2), 100);
+        answerWithEvenIds();
+
+        List<UserLookupService.Result> results = lookups.findAll(List.of(4L, 1L, 2L, 1L));
+
+        assertThat(results).extracting(UserLookupService.Result::id).containsExactly(4L, 1L, 2L);
+        assertThat(results).extracting(UserLookupService.Result::status).containsExactly(
+            UserLookupService.Status.FOUND, UserLookupService.Status.NOT_FOUND, UserLookupService.Status.FOUND);
+        assertThat(queries).containsExactly(List.of(1L, 2L));
+    }
+
+    @Test
+    void shouldRejectTooManyIds() {
+        UserLookupService lookups = lookups(Duration.ofMillis(2), 100);
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= UserLookupService.MAX_IDS + 1; id++) {
+            ids.add(id);
+        }
+
+        assertThatThrownBy(() -> lookups.findAll(ids)).isInstanceOf(IllegalArgumentException.class);
+        verify(userRepository, never()).findDtosByIds(any());
+    }
+
+    @Test
+    void shouldShareOneReadAmongConcurrentLookupsOfHotId() throws Exception {
+        UserLookupService lookups = lookups(Duration.ZERO, 100);
+        AtomicInteger reads = new AtomicInteger();
+        when(userRepository.findDtoById(7L)).thenAnswer(invocation -> {
+            reads.incrementAndGet();
+            Thread.sleep(300);
+            return Optional.of(user(7L));
+        });
+
+        List<Future<Optional<UserDTO>>> results = lookupConcurrently(lookups, Collections.nCopies(20, 7L), Set.of());
+
+        assertThat(reads).hasValue(1);
+        for (Future<Optional<UserDTO>> result : results) {
+            assertThat(result.get()).map(UserDTO::getId).contains(7L);
+        }
+    }
+
+    @Test
+    void shouldLookUpDirectlyWithoutWindow() {
+        UserLookupService lookups = lookups(Duration.ZERO, 100);
+        when(userRepository.findDtoById(2L)).thenReturn(Optional.of(user(2L)));
+
+        assertThat(lookups.findById(2L)).isPresent();
+        verify(userRepository, never()).findDtosByIds(any());
+    }
+
+    private UserLookupService lookups(Duration window, int maxBatchSize) {
+        // No-op caching, so every lookup reaches the loader
+        UserCache userCache = new UserCache(new NoOpCacheManager());
+        return new UserLookupService(userRepository, userCache, new SingleFlight(registry(), Duration.ofSeconds(1)), registry(), window, maxBatchSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectProvider<MeterRegistry> registry() {
+        ObjectProvider<MeterRegistry> registry = mock(ObjectProvider.class);
+        when(registry.getIfAvailable(any(Supplier.class))).thenReturn(meterRegistry);
+        return registry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void answerWithEvenIds() {
+        when(userRepository.findDtosByIds(anyCollection())).thenAnswer(invocation -> {
+            List<Long> ids = List.copyOf((Collection<Long>) invocation.getArgument(0));
+            queries.add(ids);
+            return ids.stream().filter(id -> id % 2 == 0).map(UserLookupServiceTest::user).toList();
+        });
+    }
+
+    // Starts every lookup at once and waits for all of them
+    private List<Future<Optional<UserDTO>>> lookupConcurrently(UserLookupService lookups, List<Long> ids,
+                                                               Set<Long> pinned) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(ids.size());
+        List<Future<Optional<UserDTO>>> results = new ArrayList<>();
+        for (Long id : ids) {
+            results.add(callers.submit(() -> {
+                if (pinned.contains(id)) {
+                    ReadWriteRoutingDataSource.pinToPrimary();
+                }
+                try {
+                    start.await();
+                    return lookups.findById(id);
+                } finally {
+                    ReadWriteRoutingDataSource.unpin();
+                }
+            }));
+        }
+        for (Future<Optional<UserDTO>> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                // Asserted by the caller
+            }
+        }
+        return results;
+    }
+
+    private static UserDTO user(Long id) {
+        return user(id, "User " + id);
+    }
+
+    private static UserDTO user(Long id, String name) {
+        return new UserDTO(id, name, "user" + id + "@example.com", null, User.UserStatus.ACTIVE, 0L);
+    }
+}